@@ -0,0 +1,51 @@
+package benchmark;
+
+import java.util.Random;
+
+import model.trail.Difficulty;
+import model.trail.Topic;
+import model.trail.Trail;
+
+/** Shared synthetic data for the ADT benchmarks (fixed seed, reproducible). */
+final class BenchData {
+
+    private BenchData() { }
+
+    /** Distinct int keys in random order */
+    static int[] shuffledKeys(int n, long seed) {
+        int[] keys = new int[n];
+        for (int i = 0; i < n; i++) keys[i] = i * 7 + 1;
+        Random r = new Random(seed);
+        for (int i = n - 1; i > 0; i--) {
+            int j = r.nextInt(i + 1);
+            int tmp = keys[i]; keys[i] = keys[j]; keys[j] = tmp;
+        }
+        return keys;
+    }
+
+    /** Random doubles in [0, max) rounded to one decimal, like trail lengths */
+    static double[] lengths(int n, double max, long seed) {
+        Random r = new Random(seed);
+        double[] out = new double[n];
+        for (int i = 0; i < n; i++) out[i] = Math.round(r.nextDouble() * max * 10) / 10.0;
+        return out;
+    }
+
+    /** Synthetic trails with varied attributes */
+    static Trail[] trails(int n, long seed) {
+        Random r = new Random(seed);
+        Topic[] topics = Topic.values();
+        Difficulty[] diffs = Difficulty.values();
+        Trail[] out = new Trail[n];
+        for (int i = 0; i < n; i++) {
+            out[i] = new Trail(
+                    "Trail " + i, "Park " + (i % 997), "NH", String.format("%05d", i % 100000),
+                    topics[r.nextInt(topics.length)], diffs[r.nextInt(diffs.length)],
+                    Math.round(r.nextDouble() * 150) / 10.0,
+                    Math.round(r.nextDouble() * 80) / 10.0,
+                    r.nextInt(4000),
+                    r.nextBoolean(), r.nextBoolean(), r.nextBoolean(), r.nextBoolean(), r.nextInt(10) == 0);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,121 @@
+package benchmark;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import model.trail.TrailConcurrentHashMap;
+import model.trail.TrailOpenHashMap;
+
+/**
+ * Mixed concurrent load: 3 reader threads and 1 writer thread sharing one
+ * map. TrailConcurrentHashMap (lock striping) vs ConcurrentHashMap and a
+ * TrailOpenHashMap behind a single lock, which is what striping replaces.
+ * Each group's score is split per method in the JMH output.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Group)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentMapBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    Integer[] boxed;
+
+    TrailConcurrentHashMap<Integer, Integer> striped;
+    ConcurrentHashMap<Integer, Integer> jdk;
+    TrailOpenHashMap<Integer, Integer> locked;     // guarded by itself
+
+    /** Each thread walks the keys from its own random offset */
+    @State(Scope.Thread)
+    public static class Cursor {
+        int i;
+
+        @Setup(Level.Trial)
+        public void start() {
+            i = ThreadLocalRandom.current().nextInt(1 << 20);
+        }
+
+        int next(int size) {
+            return (i++ & Integer.MAX_VALUE) % size;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        int[] keys = BenchData.shuffledKeys(size, 42);
+        boxed = new Integer[size];
+        for (int i = 0; i < size; i++) boxed[i] = keys[i];
+
+        striped = new TrailConcurrentHashMap<>();
+        jdk = new ConcurrentHashMap<>();
+        locked = new TrailOpenHashMap<>();
+        for (int i = 0; i < size; i++) {
+            striped.put(boxed[i], i);
+            jdk.put(boxed[i], i);
+            locked.put(boxed[i], i);
+        }
+    }
+
+    // ---------- TrailConcurrentHashMap ----------
+
+    @Benchmark
+    @Group("striped")
+    @GroupThreads(3)
+    public Integer striped_get(Cursor c) {
+        return striped.get(boxed[c.next(size)]);
+    }
+
+    @Benchmark
+    @Group("striped")
+    @GroupThreads(1)
+    public void striped_put(Cursor c) {
+        int k = c.next(size);
+        striped.put(boxed[k], k);
+    }
+
+    // ---------- ConcurrentHashMap ----------
+
+    @Benchmark
+    @Group("jdk")
+    @GroupThreads(3)
+    public Integer jdk_get(Cursor c) {
+        return jdk.get(boxed[c.next(size)]);
+    }
+
+    @Benchmark
+    @Group("jdk")
+    @GroupThreads(1)
+    public void jdk_put(Cursor c) {
+        int k = c.next(size);
+        jdk.put(boxed[k], k);
+    }
+
+    // ---------- TrailOpenHashMap, one lock ----------
+
+    @Benchmark
+    @Group("oneLock")
+    @GroupThreads(3)
+    public Integer oneLock_get(Cursor c) {
+        Integer key = boxed[c.next(size)];
+        synchronized (locked) {
+            return locked.get(key);
+        }
+    }
+
+    @Benchmark
+    @Group("oneLock")
+    @GroupThreads(1)
+    public void oneLock_put(Cursor c) {
+        int k = c.next(size);
+        synchronized (locked) {
+            locked.put(boxed[k], k);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import model.trail.Trail;
+import model.trail.TrailGeoIndex;
+import model.trail.TrailIndex;
+import model.trail.TrailIndexSnapshot;
+
+/**
+ * Spatial queries: TrailGeoIndex grid vs a haversine loop over every trail.
+ * Trails are spread over the contiguous US; queries are centred in New England.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeoBenchmark {
+
+    static final double LAT = 44.0, LON = -71.5;
+
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    TrailIndexSnapshot snap;
+    List<Trail> objects;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Trail[] trails = BenchData.trails(size, 11);
+        Random r = new Random(11);
+        for (Trail t : trails) {
+            t.setLat(25 + r.nextDouble() * 24);
+            t.setLon(-125 + r.nextDouble() * 58);
+        }
+        TrailIndex index = new TrailIndex();
+        index.addAll(List.of(trails));
+        snap = index.snapshot();
+        objects = new ArrayList<>(snap.getAll());
+    }
+
+    @Benchmark
+    public Object radius_grid() {
+        return snap.withinRadius(LAT, LON, 60);
+    }
+
+    @Benchmark
+    public Object radius_scan() {
+        List<Trail> out = new ArrayList<>();
+        for (Trail t : objects) {
+            if (TrailGeoIndex.distanceMiles(LAT, LON, t.getLat(), t.getLon()) <= 60) out.add(t);
+        }
+        return out;
+    }
+
+    @Benchmark
+    public Object nearest_grid() {
+        return snap.nearest(LAT, LON, 10);
+    }
+
+    @Benchmark
+    public Object nearest_sort() {
+        List<Trail> copy = new ArrayList<>(objects);
+        copy.sort(Comparator.comparingDouble(t -> TrailGeoIndex.distanceMiles(LAT, LON, t.getLat(), t.getLon())));
+        return copy.subList(0, Math.min(10, copy.size()));
+    }
+}
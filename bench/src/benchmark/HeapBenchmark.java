@@ -0,0 +1,106 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import model.trail.Trail;
+import model.trail.TrailHeap;
+
+/**
+ * Top-K extraction and heap construction: TrailHeap vs java.util.PriorityQueue.
+ * Elements are Trails ordered by length (the recommendation hot path shape).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeapBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    @Param({"10"})
+    int k;
+
+    Trail[] trails;
+    List<Trail> trailList;
+    final Comparator<Trail> byLength = Comparator.comparingDouble(Trail::getLength);
+
+    @Setup(Level.Trial)
+    public void setup() {
+        trails = BenchData.trails(size, 11);
+        trailList = new ArrayList<>(List.of(trails));
+    }
+
+    // ---------- top-K with a bounded heap ----------
+
+    @Benchmark
+    public void topK_trailHeapBounded(Blackhole bh) {
+        TrailHeap<Trail> h = new TrailHeap<>(byLength, 4, k);
+        for (Trail t : trails) h.offer(t);
+        while (!h.isEmpty()) bh.consume(h.removeTop());
+    }
+
+    @Benchmark
+    public void topK_priorityQueue(Blackhole bh) {
+        PriorityQueue<Trail> pq = new PriorityQueue<>(k + 1, byLength);
+        for (Trail t : trails) {
+            if (pq.size() < k) pq.add(t);
+            else if (byLength.compare(t, pq.peek()) > 0) { pq.poll(); pq.add(t); }
+        }
+        while (!pq.isEmpty()) bh.consume(pq.poll());
+    }
+
+    // ---------- build full heap, pop K ----------
+
+    @Benchmark
+    public void heapifyPopK_trailHeap(Blackhole bh) {
+        TrailHeap<Trail> h = new TrailHeap<>(byLength);
+        h.addAll(trailList);
+        for (int i = 0; i < k && !h.isEmpty(); i++) bh.consume(h.removeTop());
+    }
+
+    @Benchmark
+    public void heapifyPopK_priorityQueue(Blackhole bh) {
+        PriorityQueue<Trail> pq = new PriorityQueue<>(byLength);
+        pq.addAll(trailList);
+        for (int i = 0; i < k && !pq.isEmpty(); i++) bh.consume(pq.poll());
+    }
+
+    // ---------- arbitrary removal ----------
+
+    @State(Scope.Thread)
+    public static class Filled {
+        TrailHeap<Trail> heap;
+        PriorityQueue<Trail> pq;
+        Trail[] victims;
+
+        @Setup(Level.Invocation)
+        public void fill(HeapBenchmark b) {
+            heap = new TrailHeap<>(b.byLength);
+            heap.addAll(b.trailList);
+            pq = new PriorityQueue<>(b.trailList.size(), b.byLength);
+            pq.addAll(b.trailList);
+            victims = new Trail[Math.min(100, b.trails.length)];
+            for (int i = 0; i < victims.length; i++) victims[i] = b.trails[(i * 31) % b.trails.length];
+        }
+    }
+
+    @Benchmark
+    public void remove100_trailHeap(Filled f) {
+        for (Trail t : f.victims) f.heap.remove(t);
+    }
+
+    @Benchmark
+    public void remove100_priorityQueue(Filled f) {
+        for (Trail t : f.victims) f.pq.remove(t);
+    }
+}
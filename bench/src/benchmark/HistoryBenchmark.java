@@ -0,0 +1,51 @@
+package benchmark;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import service.AnimalHistoryStack;
+
+/**
+ * Browsing-history workload: many pushes, then read the most recent 5
+ * (the "recently viewed" strip). AnimalHistoryStack vs ArrayDeque.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HistoryBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    int pushes;
+
+    @Benchmark
+    public void pushThenRecent_historyStack(Blackhole bh) {
+        AnimalHistoryStack<Integer> h = new AnimalHistoryStack<>(AnimalHistoryStack.DEFAULT_CAPACITY);
+        for (int i = 0; i < pushes; i++) h.push(i & 1023);
+        for (int i = 0; i < 5 && i < h.size(); i++) bh.consume(h.get(i));
+    }
+
+    @Benchmark
+    public void pushThenRecent_historyStackMoveToFront(Blackhole bh) {
+        AnimalHistoryStack<Integer> h = new AnimalHistoryStack<>(AnimalHistoryStack.DEFAULT_CAPACITY, true);
+        for (int i = 0; i < pushes; i++) h.push(i & 1023);
+        for (int i = 0; i < 5 && i < h.size(); i++) bh.consume(h.get(i));
+    }
+
+    @Benchmark
+    public void pushThenRecent_arrayDeque(Blackhole bh) {
+        ArrayDeque<Integer> d = new ArrayDeque<>();
+        for (int i = 0; i < pushes; i++) {
+            d.push(i & 1023);
+            if (d.size() > AnimalHistoryStack.DEFAULT_CAPACITY) d.pollLast();
+        }
+        Iterator<Integer> it = d.iterator();
+        for (int i = 0; i < 5 && it.hasNext(); i++) bh.consume(it.next());
+    }
+}
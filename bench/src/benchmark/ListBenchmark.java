@@ -0,0 +1,116 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import model.trail.Trail;
+import model.trail.TrailList;
+
+/**
+ * TrailList vs ArrayList: append, iteration, view vs copy, sort, removeIf.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    Trail[] trails;
+    TrailList<Trail> trailList;
+    ArrayList<Trail> arrayList;
+    final Comparator<Trail> byLength = Comparator.comparingDouble(Trail::getLength);
+
+    @Setup(Level.Trial)
+    public void setup() {
+        trails = BenchData.trails(size, 5);
+        trailList = new TrailList<>(size);
+        arrayList = new ArrayList<>(size);
+        for (Trail t : trails) {
+            trailList.add(t);
+            arrayList.add(t);
+        }
+    }
+
+    // ---------- append ----------
+
+    @Benchmark
+    public Object add_trailList() {
+        TrailList<Trail> l = new TrailList<>();
+        for (Trail t : trails) l.add(t);
+        return l;
+    }
+
+    @Benchmark
+    public Object add_arrayList() {
+        ArrayList<Trail> l = new ArrayList<>();
+        for (Trail t : trails) l.add(t);
+        return l;
+    }
+
+    // ---------- iteration ----------
+
+    @Benchmark
+    public void forEach_trailList(Blackhole bh) {
+        trailList.forEach(bh::consume);
+    }
+
+    @Benchmark
+    public void forEach_arrayList(Blackhole bh) {
+        arrayList.forEach(bh::consume);
+    }
+
+    // ---------- read access as java.util.List: copy vs live view ----------
+
+    @Benchmark
+    public Object toList_trailList() {
+        return trailList.toList();
+    }
+
+    @Benchmark
+    public Object view_trailList() {
+        return trailList.view();
+    }
+
+    // ---------- sort a fresh copy ----------
+
+    @Benchmark
+    public Object sort_trailList() {
+        TrailList<Trail> l = new TrailList<>(size);
+        l.addAll(trailList);
+        l.sort(byLength);
+        return l;
+    }
+
+    @Benchmark
+    public Object sort_arrayList() {
+        ArrayList<Trail> l = new ArrayList<>(arrayList);
+        l.sort(byLength);
+        return l;
+    }
+
+    // ---------- batch removal on a fresh copy ----------
+
+    @Benchmark
+    public Object removeIf_trailList() {
+        TrailList<Trail> l = new TrailList<>(size);
+        l.addAll(trailList);
+        l.removeIf(Trail::isPetFriendly);
+        return l;
+    }
+
+    @Benchmark
+    public Object removeIf_arrayList() {
+        ArrayList<Trail> l = new ArrayList<>(arrayList);
+        l.removeIf(Trail::isPetFriendly);
+        return l;
+    }
+}
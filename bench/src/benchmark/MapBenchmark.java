@@ -0,0 +1,156 @@
+package benchmark;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import model.trail.TrailHashMap;
+import model.trail.TrailIntHashMap;
+import model.trail.TrailOpenHashMap;
+
+/**
+ * put / get / remove on the hash-map ADTs vs java.util.HashMap.
+ * Keys are boxed Integers except for TrailIntHashMap (primitive int).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    int[] keys;
+    Integer[] boxed;
+
+    TrailHashMap<Integer, Integer> chained;
+    TrailOpenHashMap<Integer, Integer> open;
+    TrailIntHashMap<Integer> intMap;
+    HashMap<Integer, Integer> jdk;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        keys = BenchData.shuffledKeys(size, 42);
+        boxed = new Integer[size];
+        for (int i = 0; i < size; i++) boxed[i] = keys[i];
+
+        chained = new TrailHashMap<>();
+        open = new TrailOpenHashMap<>();
+        intMap = new TrailIntHashMap<>();
+        jdk = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            chained.put(boxed[i], i);
+            open.put(boxed[i], i);
+            intMap.put(keys[i], boxed[i]);
+            jdk.put(boxed[i], i);
+        }
+    }
+
+    // ---------- put (fresh map each invocation) ----------
+
+    @Benchmark
+    public Object put_trailHashMap() {
+        TrailHashMap<Integer, Integer> m = new TrailHashMap<>();
+        for (int i = 0; i < size; i++) m.put(boxed[i], i);
+        return m;
+    }
+
+    @Benchmark
+    public Object put_trailOpenHashMap() {
+        TrailOpenHashMap<Integer, Integer> m = new TrailOpenHashMap<>();
+        for (int i = 0; i < size; i++) m.put(boxed[i], i);
+        return m;
+    }
+
+    @Benchmark
+    public Object put_trailIntHashMap() {
+        TrailIntHashMap<Integer> m = new TrailIntHashMap<>();
+        for (int i = 0; i < size; i++) m.put(keys[i], boxed[i]);
+        return m;
+    }
+
+    @Benchmark
+    public Object put_hashMap() {
+        HashMap<Integer, Integer> m = new HashMap<>();
+        for (int i = 0; i < size; i++) m.put(boxed[i], i);
+        return m;
+    }
+
+    // ---------- get (all keys hit) ----------
+
+    @Benchmark
+    public void get_trailHashMap(Blackhole bh) {
+        for (int i = 0; i < size; i++) bh.consume(chained.get(boxed[i]));
+    }
+
+    @Benchmark
+    public void get_trailOpenHashMap(Blackhole bh) {
+        for (int i = 0; i < size; i++) bh.consume(open.get(boxed[i]));
+    }
+
+    @Benchmark
+    public void get_trailIntHashMap(Blackhole bh) {
+        for (int i = 0; i < size; i++) bh.consume(intMap.get(keys[i]));
+    }
+
+    @Benchmark
+    public void get_hashMap(Blackhole bh) {
+        for (int i = 0; i < size; i++) bh.consume(jdk.get(boxed[i]));
+    }
+
+    // ---------- iteration ----------
+
+    @Benchmark
+    public void iterate_trailHashMap(Blackhole bh) {
+        chained.forEachEntry((k, v) -> bh.consume(v));
+    }
+
+    @Benchmark
+    public void iterate_trailOpenHashMap(Blackhole bh) {
+        open.forEachEntry((k, v) -> bh.consume(v));
+    }
+
+    @Benchmark
+    public void iterate_hashMap(Blackhole bh) {
+        jdk.forEach((k, v) -> bh.consume(v));
+    }
+
+    // ---------- remove then re-insert (keeps the map size stable) ----------
+
+    @Benchmark
+    public void removePut_trailHashMap() {
+        for (int i = 0; i < size; i += 16) {
+            chained.removeByKey(boxed[i]);
+            chained.put(boxed[i], i);
+        }
+    }
+
+    @Benchmark
+    public void removePut_trailOpenHashMap() {
+        for (int i = 0; i < size; i += 16) {
+            open.removeByKey(boxed[i]);
+            open.put(boxed[i], i);
+        }
+    }
+
+    @Benchmark
+    public void removePut_trailIntHashMap() {
+        for (int i = 0; i < size; i += 16) {
+            intMap.removeByKey(keys[i]);
+            intMap.put(keys[i], boxed[i]);
+        }
+    }
+
+    @Benchmark
+    public void removePut_hashMap() {
+        for (int i = 0; i < size; i += 16) {
+            jdk.remove(boxed[i]);
+            jdk.put(boxed[i], i);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import model.trail.Trail;
+import model.trail.TrailIndex;
+import model.trail.TrailIndexSnapshot;
+import model.trail.TrailQuery;
+import model.trail.TrailSort;
+
+/**
+ * First screen of a sorted listing: TrailIndexSnapshot.page (walks the sort
+ * index) vs materializing every match and sorting it. The query matches
+ * most of the catalog, the case where a full sort hurts most.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PageBenchmark {
+
+    static final int PAGE = 50;
+
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    TrailIndexSnapshot snap;
+    TrailQuery broad;
+    String secondPage;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        TrailIndex index = new TrailIndex();
+        index.addAll(List.of(BenchData.trails(size, 12)));
+        snap = index.snapshot();
+        broad = new TrailQuery().lengthBetween(1.0, null);
+        secondPage = snap.page(broad, TrailSort.LENGTH, PAGE, null).nextPageToken();
+    }
+
+    @Benchmark
+    public Object firstPage_cursor() {
+        return snap.page(broad, TrailSort.LENGTH, PAGE, null);
+    }
+
+    @Benchmark
+    public Object nextPage_cursor() {
+        return snap.page(broad, TrailSort.LENGTH, PAGE, secondPage);
+    }
+
+    @Benchmark
+    public Object firstPage_sortAll() {
+        List<Trail> all = new ArrayList<>(snap.trailsOf(snap.plan(broad).execute()));
+        all.sort(Comparator.comparingDouble(Trail::getLength));
+        return all.subList(0, Math.min(PAGE, all.size()));
+    }
+}
@@ -0,0 +1,107 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import model.trail.Difficulty;
+import model.trail.Topic;
+import model.trail.Trail;
+import model.trail.TrailColumnStore;
+import model.trail.TrailIndex;
+import model.trail.TrailIndexSnapshot;
+
+/**
+ * Multi-attribute filter: TrailColumnStore scan vs a loop over Trail objects,
+ * TrailIndex.filter (bitmap ANDs) vs the old HashSet.retainAll chain, and the
+ * slider search (three range indexes ANDed) vs a loop over Trail objects.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScanBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    TrailIndexSnapshot snap;
+    List<Trail> objects;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        TrailIndex index = new TrailIndex();
+        index.addAll(List.of(BenchData.trails(size, 9)));
+        snap = index.snapshot();
+        objects = new ArrayList<>(snap.getAll());
+    }
+
+    @Benchmark
+    public Object filter_columns() {
+        return snap.select(new TrailColumnStore.Query()
+                .difficulty(Difficulty.MODERATE)
+                .topic(Topic.FOREST)
+                .flag(TrailColumnStore.PET, true)
+                .lengthNear(5.0, 2.0)
+                .maxElevationGain(2000.0));
+    }
+
+    @Benchmark
+    public Object filter_objects() {
+        List<Trail> out = new ArrayList<>();
+        for (Trail t : objects) {
+            if (t.getDifficulty() != Difficulty.MODERATE) continue;
+            if (t.getTopic() != Topic.FOREST) continue;
+            if (!t.isPetFriendly()) continue;
+            if (Math.abs(t.getLength() - 5.0) > 2.0) continue;
+            if (t.getElevationGain() > 2000.0) continue;
+            out.add(t);
+        }
+        return out;
+    }
+
+    @Benchmark
+    public Object filter_bitmaps() {
+        return snap.filterRows(Difficulty.MODERATE, null, true, null, "forest", true, null);
+    }
+
+    @Benchmark
+    public Object filter_retainAll() {
+        Set<Trail> c = new HashSet<>(objects);
+        c.retainAll(new HashSet<>(snap.getByDifficulty(Difficulty.MODERATE)));
+        c.retainAll(new HashSet<>(snap.getFeature("pet_friendly")));
+        c.retainAll(new HashSet<>(snap.getByTopic("forest")));
+        c.retainAll(new HashSet<>(snap.getFeature("wildlife")));
+        return c;
+    }
+
+    @Benchmark
+    public Object sliders_ranges() {
+        return snap.lengthBetween(null, 3.0)
+                .and(snap.visitHoursBetween(null, 2.0))
+                .and(snap.elevationBetween(null, 500.0));
+    }
+
+    @Benchmark
+    public Object sliders_kdtree() {
+        return snap.rangesBetween(null, 3.0, null, 2.0, null, 500.0);
+    }
+
+    @Benchmark
+    public Object sliders_objects() {
+        List<Trail> out = new ArrayList<>();
+        for (Trail t : objects) {
+            if (t.getLength() > 3.0) continue;
+            if (t.getVisitHours() > 2.0) continue;
+            if (t.getElevationGain() > 500.0) continue;
+            out.add(t);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,61 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import model.search.TrailTextIndex;
+import model.trail.Trail;
+import model.trail.TrailIndex;
+import model.trail.TrailIndexSnapshot;
+
+/**
+ * Free-text search over name / park / state / zipcode / topic:
+ * TrailTextIndex (posting-list merge, BM25 ranked) vs the per-trail string
+ * concatenation + contains() loop the search screens used to run.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextSearchBenchmark {
+
+    static final List<String> QUERY = List.of("park", "420");
+
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    TrailIndexSnapshot snap;
+    TrailTextIndex text;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        TrailIndex index = new TrailIndex();
+        index.addAll(List.of(BenchData.trails(size, 13)));
+        snap = index.snapshot();
+        text = TrailTextIndex.build(snap);
+    }
+
+    @Benchmark
+    public int[] search_bm25() {
+        return text.search(QUERY, null);
+    }
+
+    @Benchmark
+    public List<Trail> search_concatContains() {
+        List<Trail> out = new ArrayList<>();
+        for (Trail t : snap.getAll()) {
+            String s = (t.getName() + " " + t.getPark() + " " + t.getTopic() + " " + t.getState()).toLowerCase();
+            boolean ok = true;
+            for (String tk : QUERY) {
+                if (!s.contains(tk)) { ok = false; break; }
+            }
+            if (ok) out.add(t);
+        }
+        return out;
+    }
+}
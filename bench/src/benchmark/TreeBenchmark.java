@@ -0,0 +1,106 @@
+package benchmark;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import model.trail.TrailTreeMap;
+
+/**
+ * Ordered-index workloads (length / visit-hours style keys) on TrailTreeMap
+ * vs java.util.TreeMap. Both store key -> list of ids.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TreeBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    double[] keys;
+    TrailTreeMap<Double, Integer> tree;
+    TreeMap<Double, List<Integer>> jdk;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        keys = BenchData.lengths(size, 20.0, 7);
+        tree = new TrailTreeMap<>();
+        jdk = new TreeMap<>();
+        for (int i = 0; i < size; i++) {
+            tree.put(keys[i], i);
+            jdk.computeIfAbsent(keys[i], k -> new java.util.ArrayList<>()).add(i);
+        }
+    }
+
+    // ---------- build from sorted input (the export case) ----------
+
+    @Benchmark
+    public Object sortedPut_trailTreeMap() {
+        TrailTreeMap<Double, Integer> t = new TrailTreeMap<>();
+        for (int i = 0; i < size; i++) t.put((double) i, i);
+        return t;
+    }
+
+    @Benchmark
+    public Object sortedPut_treeMap() {
+        TreeMap<Double, List<Integer>> t = new TreeMap<>();
+        for (int i = 0; i < size; i++) t.computeIfAbsent((double) i, k -> new java.util.ArrayList<>()).add(i);
+        return t;
+    }
+
+    // ---------- range query [5, 6] ----------
+
+    @Benchmark
+    public Object range_trailTreeMap() {
+        return tree.getRange(5.0, 6.0);
+    }
+
+    @Benchmark
+    public void range_treeMap(Blackhole bh) {
+        for (List<Integer> l : jdk.subMap(5.0, true, 6.0, true).values()) bh.consume(l);
+    }
+
+    // ---------- headMap walk (keys <= 3) ----------
+
+    @Benchmark
+    public void head_trailTreeMap(Blackhole bh) {
+        for (Map.Entry<Double, List<Integer>> e : tree.headMap(3.0).entrySet()) bh.consume(e.getValue());
+    }
+
+    @Benchmark
+    public void head_treeMap(Blackhole bh) {
+        for (Map.Entry<Double, List<Integer>> e : jdk.headMap(3.0, true).entrySet()) bh.consume(e.getValue());
+    }
+
+    // ---------- point lookups ----------
+
+    @Benchmark
+    public void get_trailTreeMap(Blackhole bh) {
+        for (int i = 0; i < size; i += 8) bh.consume(tree.get(keys[i]));
+    }
+
+    @Benchmark
+    public void get_treeMap(Blackhole bh) {
+        for (int i = 0; i < size; i += 8) bh.consume(jdk.get(keys[i]));
+    }
+
+    // ---------- full in-order iteration ----------
+
+    @Benchmark
+    public Object iterate_trailTreeMap() {
+        return tree.toList();
+    }
+
+    @Benchmark
+    public void iterate_treeMap(Blackhole bh) {
+        for (List<Integer> l : jdk.values()) bh.consume(l);
+    }
+}
@@ -406,8 +406,7 @@ public class AnimalDetailController {
         AnimalHistoryStack<Animal> stack = GlobalHistory.viewedAnimals;
 
         AnimalIterator: 
-        for (int i = 0; i < stack.size(); i++) {
-            Animal a = stack.get(i);
+        for (Animal a : stack) {
 
            
             if (a == currentAnimal) continue;
@@ -69,7 +69,7 @@ public class AnimalRecommendController {
             }
         }
 
-        for (Animal a : recList.toList()) {
+        for (Animal a : recList) {
             VBox card = createAnimalCard(a);
             animalPane.getChildren().add(card);
         }
@@ -11,20 +11,30 @@ import data.TrailDataLoader;
 import model.animal.Animal;
 import model.group.Group;
 import model.trail.Trail;
+import model.trail.TrailCopyOnWriteList;
 import model.trail.TrailIndex;
 import model.trail.TrailList;
+import model.trail.TrailListInterface;
 import repo.ActivityRepository;
 import repo.GroupRepository;
 import service.ActivityService;
 import service.GroupSearchService;
+import service.GroupSearchServiceImpl;
+import service.TrailSearchService;
 
 public class GlobalData {
 
     public static TrailIndex index = new TrailIndex();
 
-    private static final TrailList<Group> liveGroups = new TrailList<>();
+    // copy-on-write: background persistence / search threads read a stable snapshot
+    private static final TrailCopyOnWriteList<Group> liveGroups = new TrailCopyOnWriteList<>();
     private static final GroupRepository GROUPS = new GroupRepository("data/groups.csv");
-    private static boolean loaded = false;
+    private static volatile boolean loaded = false;
+
+    // one search service for the whole app: indexed once at load, then kept current by addGroup
+    private static final GroupSearchService SEARCH = new GroupSearchServiceImpl(index);
+    // shared so its text index is built once per catalog version, not once per screen
+    private static final TrailSearchService TRAIL_SEARCH = new TrailSearchService(index);
 
     private static List<Animal> allAnimals = new ArrayList<>();
 
@@ -42,23 +52,37 @@ public class GlobalData {
     }
 
 
-    /** TrailIndex.getAll() still returns java.util.List<Trail>, which is fine */
+    /** Immutable view of the current TrailIndex snapshot (no copy) */
     public static List<Trail> getAllTrails() {
         return index.getAll();
     }
 
 
-    public static TrailList<Group> getAllGroups() {
+    public static TrailListInterface<Group> getAllGroups() {
         return liveGroups;
     }
 
     public static void addGroup(Group g) {
         if (g != null) {
             liveGroups.add(g);
+            TrailList<Group> one = new TrailList<>(1);
+            one.add(g);
+            SEARCH.indexGroups(one);   // incremental: only the new group
             persistGroups();
         }
     }
 
+    /** The shared, already indexed search service (loads the data on first use) */
+    public static GroupSearchService searchService() {
+        loadOrSeedOnce();
+        return SEARCH;
+    }
+
+    /** The shared trail search service */
+    public static TrailSearchService trailSearchService() {
+        return TRAIL_SEARCH;
+    }
+
     public static void persistGroups() {
         GROUPS.saveAll(liveGroups);
     }
@@ -66,7 +90,7 @@ public class GlobalData {
     // ───────────────────────────────────────────────
     // Global loading entry (called by Main.start or AppNavigator.goToRootLayout)
     // ───────────────────────────────────────────────
-    public static void loadOrSeedOnce() {
+    public static synchronized void loadOrSeedOnce() {
         if (loaded) return;
 
         // 1) Load Trails
@@ -77,19 +101,15 @@ public class GlobalData {
         // 2) Load Groups (CSV -> TrailList<Group>)
         liveGroups.clear();
         var loadedGroups = GROUPS.loadAll(index);  // TrailList<Group>
-        for (int i = 0; i < loadedGroups.size(); i++) {
-            Group g = loadedGroups.get(i);
-            if (g != null) liveGroups.add(g);
-        }
+        loadedGroups.removeIf(g -> g == null);
+        liveGroups.addAll(loadedGroups.view());    // one copy for the whole batch
 
         // If there are no groups in file, generate seed groups per Trail
         if (liveGroups.size() == 0) {
 
             // 1) Convert getAllTrails() List<Trail> into TrailList<Trail>
-            TrailList<Trail> trailList = new TrailList<>();
-            for (Trail t : getAllTrails()) {
-                trailList.add(t);
-            }
+            TrailList<Trail> trailList = new TrailList<>(index.size());
+            trailList.addAll(getAllTrails());
 
             // 2) Call updated GroupSeeder: TrailList<Trail> -> TrailList<Group>
             TrailList<Group> seeds = GroupSeeder.makeSampleGroupsPerTrail(trailList);
@@ -108,34 +128,24 @@ public class GlobalData {
                 }
             });
 
-            // 4) Push seeds (TrailList<Group>) into global liveGroups (TrailList<Group>)
-            for (int i = 0; i < seeds.size(); i++) {
-                Group g = seeds.get(i);
-                if (g != null) {
-                    liveGroups.add(g);
-                }
-            }
+            // 4) Push seeds (TrailList<Group>) into global liveGroups in one batch
+            seeds.removeIf(g -> g == null);
+            liveGroups.addAll(seeds.view());
 
             persistGroups();
         }
 
+        // 3) Build the search indexes once; later changes are applied incrementally
+        TrailList<Trail> allTrails = new TrailList<>(index.size());
+        allTrails.addAll(getAllTrails());
+        SEARCH.indexTrails(allTrails);
+        SEARCH.indexGroups(liveGroups);
+
         loadAnimals();
 
         loaded = true;
     }
 
-    public static void bootstrap(GroupSearchService svc) {
-        TrailList<Trail> trailList = new TrailList<>();
-        for (Trail t : getAllTrails()) {
-            trailList.add(t);
-        }
-
-        TrailList<Group> groupList = getAllGroups();
-
-        svc.indexTrails(trailList);
-        svc.indexGroups(groupList);
-    }
-
     public static final ActivityService ACTIVITY =
             new ActivityService(new ActivityRepository(Paths.get("data/activity.csv")));
 }
@@ -5,5 +5,7 @@ import service.AnimalHistoryStack;
 
 public class GlobalHistory {
 
-    public static AnimalHistoryStack<Animal> viewedAnimals = new AnimalHistoryStack<>();
+    /** Bounded, de-duplicated: re-viewing an animal moves it to the front */
+    public static AnimalHistoryStack<Animal> viewedAnimals =
+            new AnimalHistoryStack<>(AnimalHistoryStack.DEFAULT_CAPACITY, true);
 }
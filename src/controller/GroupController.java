@@ -18,7 +18,6 @@ import model.trail.Difficulty;
 import model.trail.Topic;
 import model.trail.Trail;
 import service.GroupSearchService;
-import service.GroupSearchServiceImpl;
 import util.Alerts;
 
 public class GroupController {
@@ -35,7 +34,7 @@ public class GroupController {
     @FXML private TitledPane advancedPane;
     @FXML private Button createBtn;
 
-    private final GroupSearchService service = new GroupSearchServiceImpl();
+    private final GroupSearchService service = GlobalData.searchService();
     private int joinAs = 1;
 
     private boolean recommendOnly = false;
@@ -56,8 +55,6 @@ public class GroupController {
                 new SpinnerValueFactory.IntegerSpinnerValueFactory(1, 50, 1, 1));
         joinPartySizeSpinner.setEditable(true);
 
-        controller.GlobalData.bootstrap(service); // Index Trails/Groups
-        
         if (recommendOnly) {
             // Recommendation-only mode: hide search area and create button (invisible and unmanaged)
             hide(topSearchBar);
@@ -97,7 +94,7 @@ public class GroupController {
         var top = service.advancedSearch(c, 5); // Top-5
         recommendedPane.getChildren().clear();
 
-        for (Group g : top.toList()) {
+        for (Group g : top) {
             recommendedPane.getChildren().add(
                 GroupCardFactory.card(
                     g,
@@ -146,8 +143,6 @@ public class GroupController {
     /** Keyword search */
     @FXML
     private void onKeywordSearch() {
-        controller.GlobalData.bootstrap(service);
-
         String kw = keywordField.getText();
         var groups = service.searchGroupsByTrailKeyword(kw, 50);
 
@@ -109,11 +109,8 @@ public class GroupCreateController {
             }
             g.join(me, party);
 
-            // Register into index so others can discover this group
-            TrailList<Group> one = new TrailList<>();
-            one.add(g);
-            service.indexGroups(one);             // Incremental indexing for current service
-            controller.GlobalData.addGroup(g); // Save into global state and persist to CSV
+            // Save into global state, index it in the shared search service and persist to CSV
+            controller.GlobalData.addGroup(g);
 
             var username = model.auth.AuthContext.currentUser()
                     .map(s -> s.getAccount().getUsername()).orElse(null);
@@ -35,7 +35,7 @@ public class GroupResultsController {
 
     private void render(TrailList<Group> groups) {
         listPane.getChildren().clear();
-        for (Group g : groups.toList()) {
+        for (Group g : groups) {
             listPane.getChildren().add(
                     GroupCardFactory.card(
                             g,
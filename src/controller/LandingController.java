@@ -96,7 +96,7 @@ public class LandingController {
 
         recommendedList.getChildren().clear();
 
-        for (Trail t : recs.toList()) {
+        for (Trail t : recs) {
 
             Label card = new Label(
                 t.getName() + " • " + t.getLength() + " mi • " + t.getDifficulty()
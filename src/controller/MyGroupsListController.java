@@ -23,7 +23,7 @@ public class MyGroupsListController {
     private void render() {
         listPane.getChildren().clear();
         int joinAs = 1; // Default to joining as 1 person; can be replaced with a user-specific setting
-        for (Group g : data.toList()) {
+        for (Group g : data) {
             listPane.getChildren().add(
                 GroupCardFactory.card(g, joinAs, this::onView, this::onJoin)
             );
@@ -37,8 +37,7 @@ public class MyGroupsListController {
             GlobalData.ACTIVITY.markViewed(username, g.getId());
         }
         AppNavigator.showPageWithData("/ui/group-detail.fxml",
-                (GroupDetailController c) -> c.init(new service.GroupSearchServiceImpl(), g, 1));
-        // Note: A new ServiceImpl is created here; if you use a singleton/DI, replace this with the shared instance
+                (GroupDetailController c) -> c.init(GlobalData.searchService(), g, 1));
     }
 
     private void onJoin(Group g) {
@@ -7,6 +7,8 @@ import javafx.scene.layout.VBox;
 import model.trail.Difficulty;
 import model.trail.Topic;
 import model.trail.Trail;
+import model.trail.TrailQuery;
+import service.TrailSearchSession;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -40,6 +42,8 @@ public class SearchController {
     @FXML private VBox resultsPreview;
 
     private List<Trail> allTrails;
+    // remembers the previous query so narrowing it refines the last candidates
+    private final TrailSearchSession session = GlobalData.trailSearchService().newSession();
 
     @FXML
     public void initialize() {
@@ -181,36 +185,18 @@ public class SearchController {
             wildlifeCheck.setSelected(true);
         }
 
-        // 3) 开始过滤
-        List<Trail> base = new ArrayList<>(allTrails);
-        List<Trail> filtered = new ArrayList<>();
-
-        for (Trail t : base) {
-            // 3.1 文本匹配：name + park + topic + state 中包含所有 textTokens
-            if (!parsed.textTokens.isEmpty()) {
-                String text = (t.getName() + " " + t.getPark() + " " +
-                        t.getTopic() + " " + t.getState()).toLowerCase();
-                boolean match = true;
-                for (String tk : parsed.textTokens) {
-                    if (!text.contains(tk)) {
-                        match = false;
-                        break;
-                    }
-                }
-                if (!match) continue;
-            }
-
-            // 3.2 结构化过滤
-            if (diff != null && t.getDifficulty() != diff) continue;
-            if (topic != null && t.getTopic() != topic) continue;
-            if (t.getLength() > maxLen) continue;
-            if (t.getVisitHours() > maxHours) continue;
-            if (t.getElevationGain() > maxElev) continue;
-            if (pet && !t.isPetFriendly()) continue;
-            if (camp && !t.isCampingAllowed()) continue;
-            if (wildlife && !t.isWildAnimalPossible()) continue;
-            filtered.add(t);
-        }
+        // 3) 结构化过滤（滑块走 k-d 树，其余走倒排位图）+ BM25 文本匹配（name / park / state / zipcode / topic），
+        //    交给 session：只是在上一次查询基础上收窄（多打字、多一个词、滑块收紧）时，直接在上次的候选集里细化
+        TrailQuery query = new TrailQuery()
+                .difficulty(diff)
+                .topic(topic)
+                .feature("pet_friendly", pet ? true : null)
+                .feature("camping", camp ? true : null)
+                .feature("wildlife", wildlife ? true : null)
+                .lengthBetween(null, maxLen)
+                .visitHoursBetween(null, maxHours)
+                .elevationBetween(null, maxElev);
+        List<Trail> filtered = session.search(parsed.textTokens, query);
 
         // 4) 根据结果控制 Filters 展开/折叠
         display(filtered);
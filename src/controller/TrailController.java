@@ -13,7 +13,7 @@ public class TrailController {
 
     private final TrailIndex index = GlobalData.index;
 
-    private final TrailSearchService searchService = new TrailSearchService(index);
+    private final TrailSearchService searchService = GlobalData.trailSearchService();
     private final TrailRecommendationService recService = new TrailRecommendationService(index);
 
     /** Add a trail to index */
@@ -110,13 +110,9 @@ public class TrailDetailController {
     private void loadGroupsForTrail() {
         groupsContainer.getChildren().clear();
 
-        // 全部 group：TrailList<Group>
-        TrailList<Group> allGroups = controller.GlobalData.getAllGroups();
-
-        // 过滤匹配当前 trail 的 group
+        // 过滤匹配当前 trail 的 group（遍历 copy-on-write 快照）
         TrailList<Group> matched = new TrailList<>();
-        for (int i = 0; i < allGroups.size(); i++) {
-            Group g = allGroups.get(i);
+        for (Group g : controller.GlobalData.getAllGroups()) {
             if (g != null && g.getTrail() != null && g.getTrail().equals(trail)) {
                 matched.add(g);
             }
@@ -138,7 +134,7 @@ public class TrailDetailController {
                             for (int i2 = 0; i2 < src.size(); i2++) tl.add(src.get(i2));
                         }
 
-                        c.init(new service.GroupSearchServiceImpl(), tl);
+                        c.init(controller.GlobalData.searchService(), tl);
                         c.setDefaultTrail(trail);
                     }
                 )
@@ -164,7 +160,7 @@ public class TrailDetailController {
     private void onViewGroup(model.group.Group g) {
         application.AppNavigator.showPageWithData("/ui/group-detail.fxml",
                 (GroupDetailController c) -> c.init(
-                        new service.GroupSearchServiceImpl(),
+                        controller.GlobalData.searchService(),
                         g,
                         1
                 ));
@@ -176,12 +172,13 @@ public class TrailDetailController {
                 .orElseThrow(() -> new IllegalStateException("Please login"))
                 .getProfile();
 
-        if (!new service.GroupSearchServiceImpl().canJoin(g, 1)) {
+        var svc = controller.GlobalData.searchService();
+        if (!svc.canJoin(g, 1)) {
             util.Alerts.warn("Not enough slots.");
             return;
         }
 
-        new service.GroupSearchServiceImpl().join(g, me, 1);
+        svc.join(g, me, 1);
         controller.GlobalData.persistGroups();
         util.Alerts.info("Joined " + g.getTitle());
 
@@ -14,7 +14,6 @@ import model.trail.Trail;
 import model.trail.TrailList;
 import service.AnimalSeasonService;
 import service.GroupSearchService;
-import service.GroupSearchServiceImpl;
 import service.TerrainAnimalMapping;
 import service.TerrainFilterService;
 
@@ -32,7 +31,7 @@ public class TrailRecommendController {
     /** 改：用自定义 ADT 保存 trails */
     private TrailList<Trail> trailList = new TrailList<>();
     private AnimalGroup selectedGroup;
-    private final GroupSearchService service = new GroupSearchServiceImpl();
+    private final GroupSearchService service = GlobalData.searchService();
 
     /** 代替 Collections.reverse 的简单“反向显示”开关 */
     private boolean reverseView = false;
@@ -58,7 +57,6 @@ public class TrailRecommendController {
         }
         this.selectedGroup = group;
 
-        GlobalData.bootstrap(service);
         renderCards(this.trailList);
     }
 
@@ -248,11 +246,9 @@ public class TrailRecommendController {
 
     /** Join：group 也用 TrailList + for 循环（不使用 stream） */
     private void onJoinGroup(Trail t) {
-        TrailList<Group> all = GlobalData.getAllGroups();
         TrailList<Group> groups = new TrailList<>();
 
-        for (int i = 0; i < all.size(); i++) {
-            Group g = all.get(i);
+        for (Group g : GlobalData.getAllGroups()) {
             if (g != null && g.getTrail() != null && g.getTrail().equals(t)) {
                 groups.add(g);
             }
@@ -23,9 +23,7 @@ public class TrailDataLoader {
             Type listType = new TypeToken<List<Trail>>(){}.getType();
             List<Trail> trails = gson.fromJson(reader, listType);
 
-            for (Trail t : trails) {
-                index.addTrail(t);
-            }
+            index.addAll(trails);   // one published snapshot for the whole file
 
             System.out.println("Loaded " + trails.size() + " trails from JSON.");
 
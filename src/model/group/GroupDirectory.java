@@ -4,11 +4,13 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 import model.trail.Trail;
 import model.trail.TrailHashMap;
+import model.trail.TrailIntHashMap;
 import model.trail.TrailList;
+import model.trail.TrailRegistry;
 
 public class GroupDirectory {
     private final TrailList<Group> groups = new TrailList<>();
-    private final TrailHashMap<Trail, TrailList<Group>> groupsByTrail = new TrailHashMap<>();
+    private final TrailIntHashMap<TrailList<Group>> groupsByTrail = new TrailIntHashMap<>();   // trail id → groups
     private final TrailHashMap<String, Group> byId = new TrailHashMap<>();
 
     /** Create a group with capacity only (creator is NOT auto-joined). */
@@ -43,12 +45,12 @@ public class GroupDirectory {
         // 2. Index by id
         byId.put(g.getId(), g);
 
-        // 3. Index by trail
-        Trail trail = g.getTrail();
-        TrailList<Group> list = groupsByTrail.get(trail);
+        // 3. Index by trail id
+        int trailId = TrailRegistry.global().intern(g.getTrail());
+        TrailList<Group> list = groupsByTrail.get(trailId);
         if (list == null) {
             list = new TrailList<>();
-            groupsByTrail.put(trail, list);
+            groupsByTrail.put(trailId, list);
         }
         list.add(g);
     }
@@ -65,13 +67,13 @@ public class GroupDirectory {
             // 1. Remove from id index
             byId.removeByKey(g.getId());
 
-            // 2. Remove from trail -> list index
-            Trail trail = g.getTrail();
-            TrailList<Group> list = groupsByTrail.get(trail);
+            // 2. Remove from trail id -> list index
+            int trailId = TrailRegistry.global().idOf(g.getTrail());
+            TrailList<Group> list = (trailId < 0) ? null : groupsByTrail.get(trailId);
             if (list != null) {
                 list.remove(g);
                 if (list.size() == 0) {
-                    groupsByTrail.removeByKey(trail);
+                    groupsByTrail.removeByKey(trailId);
                 }
             }
         }
@@ -90,7 +92,8 @@ public class GroupDirectory {
 
     /** Return list of groups for a given trail */
     public TrailList<Group> groupsForTrail(Trail t) {
-        TrailList<Group> list = groupsByTrail.get(t);
+        int trailId = TrailRegistry.global().idOf(t);
+        TrailList<Group> list = (trailId < 0) ? null : groupsByTrail.get(trailId);
         if (list == null) {
             // If nothing exists, return an empty list
             return new TrailList<>();
@@ -22,7 +22,7 @@ public final class GroupKeywordSearcher {
             // groupIndex.groupsOf(...) was updated earlier to return TrailList<Group>
             var groups = groupIndex.groupsOf(sid.id);
             // Add each group into the result
-            for (Group g : groups.toList()) {
+            for (Group g : groups) {
                 out.add(g);
             }
         }
@@ -2,28 +2,89 @@ package model.search;
 
 import java.text.Normalizer;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 import model.trail.Trail;
+import model.trail.TrailRegistry;
 
+/**
+ * Fuzzy trail-name index; ids are TrailRegistry ids, so they match every other index.
+ * The token dictionary is an immutable TrailTokenTrie republished on each add,
+ * so searches run lock-free alongside (serialised) adds.
+ *
+ * Substring matches come from a second trie holding every trigram of each
+ * padded name: a query of 3+ chars intersects its trigrams' postings, a
+ * shorter one takes the trigrams starting with it, and only those
+ * candidates are checked with contains().
+ *
+ * Query tokens also match name tokens within a small edit distance (1 for
+ * 3-5 chars, 2 from 6 on), found by walking the token trie, so "lafayete"
+ * or "ecco lake" still find their trails.
+ */
 public final class TrailNameIndex {
-    private final List<Trail> trails = new ArrayList<>();        // Main table: id -> Trail
-    private final Map<String, Set<Integer>> tokenToIds = new HashMap<>(); // Inverted index
-    private final Map<Integer, String> idToNameNorm = new HashMap<>();    // Normalized name cache
+    private volatile TrailTokenTrie tokens = TrailTokenTrie.EMPTY;                 // Inverted index
+    private volatile TrailTokenTrie trigrams = TrailTokenTrie.EMPTY;               // trigram -> ids
+    private final Map<Integer, String> idToNameNorm = new ConcurrentHashMap<>();   // Normalized name cache
 
     private static final Pattern NON_ALNUM = Pattern.compile("[^\\p{L}\\p{Nd}]+");
 
-    public int add(Trail t) {
-        int id = trails.size();
-        trails.add(t);
-        String norm = normalize(t.getName());
-        idToNameNorm.put(id, norm);
+    /** Index t's name; returns its id (adding an already indexed trail changes nothing) */
+    public synchronized int add(Trail t) {
+        int id = TrailRegistry.global().intern(t);
+        if (idToNameNorm.containsKey(id)) return id;
+        index(id, normalize(t.getName()));
+        return id;
+    }
 
-        // Simple tokenization: split by whitespace and non-alphanumeric characters
-        for (String tok : tokenize(norm)) {
-            tokenToIds.computeIfAbsent(tok, k -> new HashSet<>()).add(id);
+    /** Index a batch and publish the dictionary once (e.g. the catalog at load time) */
+    public synchronized void addAll(Iterable<? extends Trail> trails) {
+        Map<Integer, String> fresh = new LinkedHashMap<>();
+        for (Trail t : trails) {
+            int id = TrailRegistry.global().intern(t);
+            if (!idToNameNorm.containsKey(id)) fresh.putIfAbsent(id, normalize(t.getName()));
+        }
+        index(fresh);
+    }
+
+    private void index(int id, String norm) {
+        index(Map.of(id, norm));
+    }
+
+    // caller holds the lock; ids are grouped per token and each trie is merged and published once per batch
+    private void index(Map<Integer, String> names) {
+        Map<String, IdList> toks = new HashMap<>(), grams = new HashMap<>();
+        for (var e : names.entrySet()) {
+            int id = e.getKey();
+            String norm = e.getValue();
+            idToNameNorm.put(id, norm);
+            // Simple tokenization: split by whitespace and non-alphanumeric characters
+            for (String tok : tokenize(norm)) {
+                toks.computeIfAbsent(tok, k -> new IdList()).add(id);
+            }
+            String padded = norm + PAD + PAD;
+            for (int p = 0; p + 3 <= padded.length(); p++) {
+                grams.computeIfAbsent(padded.substring(p, p + 3), k -> new IdList()).add(id);
+            }
+        }
+        trigrams = trigrams.withAll(IdList.freeze(grams));
+        tokens = tokens.withAll(IdList.freeze(toks));
+    }
+
+    private static final class IdList {
+        int[] ids = new int[2];
+        int size;
+
+        void add(int id) {
+            if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+
+        static Map<String, int[]> freeze(Map<String, IdList> lists) {
+            Map<String, int[]> out = new HashMap<>(lists.size() * 2);
+            lists.forEach((k, l) -> out.put(k, Arrays.copyOf(l.ids, l.size)));
+            return out;
         }
-        return id;
     }
 
     /** Fuzzy search: returns (trailId, score) sorted by score descending */
@@ -31,25 +92,35 @@ public final class TrailNameIndex {
         String q = normalize(keyword);
         if (q.isBlank()) return List.of();
 
-        // 1) Inverted index hits (token matches + prefix matches)
-        Set<Integer> candidate = new HashSet<>();
-        for (String tok : tokenize(q)) {
-            var set = tokenToIds.get(tok);
-            if (set != null) candidate.addAll(set);
-            // Prefix expansion: tokens that start with tok
-            for (var e : tokenToIds.entrySet()) {
-                if (e.getKey().startsWith(tok)) candidate.addAll(e.getValue());
-            }
+        // 1) Inverted index hits: tokens equal to, starting with, or a typo or two away from each query token;
+        //    edits[k] = fewest edits by which the candidate matches query token k (prefix hits count as 0)
+        TrailTokenTrie dict = tokens;
+        List<String> qTokens = tokenize(q);
+        Map<Integer, int[]> edits = new HashMap<>();
+        for (int k = 0; k < qTokens.size(); k++) {
+            String tok = qTokens.get(k);
+            final int at = k;
+            TrailTokenTrie.EditVisitor hit = (id, d) -> {
+                int[] e = edits.computeIfAbsent(id, x -> unmatched(qTokens.size()));
+                e[at] = Math.min(e[at], d);
+            };
+            dict.forEachWithPrefix(tok, id -> hit.visit(id, 0));
+            int budget = maxEdits(tok);
+            if (budget > 0) dict.forEachWithin(tok, budget, hit);
         }
+        Set<Integer> candidate = new HashSet<>(edits.keySet());
 
-        // 2) Add candidates whose normalized name contains the query substring (to avoid misses)
-        for (var entry : idToNameNorm.entrySet()) {
-            if (entry.getValue().contains(q)) candidate.add(entry.getKey());
+        // 2) Add candidates whose normalized name contains the query substring (to avoid misses);
+        //    the trigram postings narrow the names to check
+        for (int id : substringCandidates(q)) {
+            String name = idToNameNorm.get(id);
+            if (name != null && name.contains(q)) candidate.add(id);
         }
 
         if (candidate.isEmpty()) return List.of();
 
-        // 3) Simple scoring: exact match > prefix match > substring match > token overlap count
+        // 3) Simple scoring: exact match > prefix match > substring match > every token matched (typos
+        //    allowed) > token overlap count
         List<ScoredId> out = new ArrayList<>();
         for (int id : candidate) {
             String name = idToNameNorm.get(id);
@@ -57,6 +128,7 @@ public final class TrailNameIndex {
             if (name.equals(q)) score = 100;
             else if (name.startsWith(q)) score = 80;
             else if (name.contains(q)) score = 60;
+            else score = 40 * typoCoverage(edits.get(id), qTokens);
             // Token overlap contribution
             score += jaccard(tokenize(name), tokenize(q)) * 20;
             out.add(new ScoredId(id, score));
@@ -66,19 +138,106 @@ public final class TrailNameIndex {
         return out;
     }
 
-    public Trail get(int trailId) { return trails.get(trailId); }
+    public Trail get(int trailId) { return TrailRegistry.global().byId(trailId); }
 
     // ---------- helpers ----------
-    private static String normalize(String s) {
-        String n = Normalizer.normalize(s == null ? "" : s, Normalizer.Form.NFKC);
+    /** Edit budget for a query token: short tokens and numbers (zipcodes, trail numbers) must match exactly */
+    static int maxEdits(String token) {
+        for (int i = 0; i < token.length(); i++) {
+            if (Character.isDigit(token.charAt(i))) return 0;
+        }
+        return token.length() < 3 ? 0 : token.length() < 6 ? 1 : 2;
+    }
+
+    private static int[] unmatched(int n) {
+        int[] e = new int[n];
+        Arrays.fill(e, Integer.MAX_VALUE);
+        return e;
+    }
+
+    /** Mean closeness over the query tokens (1 exact, less per edit), or 0 unless every token matched */
+    private static double typoCoverage(int[] edits, List<String> qTokens) {
+        if (edits == null) return 0;
+        double sum = 0;
+        for (int k = 0; k < edits.length; k++) {
+            if (edits[k] == Integer.MAX_VALUE) return 0;
+            sum += 1 - (double) edits[k] / (maxEdits(qTokens.get(k)) + 1);
+        }
+        return sum / edits.length;
+    }
+
+    private static final char PAD = '\u0000';     // never survives normalize(), so it matches nothing in a query
+
+    /** Ids whose name may contain q: every name that does is included */
+    private int[] substringCandidates(String q) {
+        TrailTokenTrie grams = trigrams;
+        if (q.length() < 3) {
+            // a name containing q has a (padded) trigram starting with q
+            Set<Integer> ids = new HashSet<>();
+            grams.forEachWithPrefix(q, ids::add);
+            int[] out = new int[ids.size()];
+            int n = 0;
+            for (int id : ids) out[n++] = id;
+            return out;
+        }
+        List<int[]> postings = new ArrayList<>();
+        for (int p = 0; p + 3 <= q.length(); p++) {
+            int[] ids = grams.exact(q.substring(p, p + 3));
+            if (ids.length == 0) return ids;
+            postings.add(ids);
+        }
+        postings.sort(Comparator.comparingInt(a -> a.length));   // intersect from the rarest trigram
+        int[] acc = postings.get(0);
+        for (int i = 1; i < postings.size() && acc.length > 0; i++) {
+            acc = intersect(acc, postings.get(i));
+        }
+        return acc;
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] out = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) i++;
+            else if (a[i] > b[j]) j++;
+            else { out[n++] = a[i]; i++; j++; }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    static String normalize(String s) {
+        if (s == null) return "";
+        String ascii = normalizeAscii(s);
+        if (ascii != null) return ascii;
+        String n = Normalizer.normalize(s, Normalizer.Form.NFKC);
         n = n.toLowerCase(Locale.ROOT);
         n = NON_ALNUM.matcher(n).replaceAll(" ").trim();
         return n.replaceAll("\\s+", " ");
     }
 
-    private static List<String> tokenize(String s) {
+    // one pass, no regex: same result as the general path for plain ASCII (which NFKC leaves as is); null otherwise
+    private static String normalizeAscii(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        boolean gap = false;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= 0x80) return null;
+            if (c >= 'A' && c <= 'Z') c = (char) (c + ('a' - 'A'));
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                if (gap && sb.length() > 0) sb.append(' ');
+                gap = false;
+                sb.append(c);
+            } else {
+                gap = true;
+            }
+        }
+        return sb.toString();
+    }
+
+    // input is normalized: tokens separated by single spaces
+    static List<String> tokenize(String s) {
         if (s.isBlank()) return List.of();
-        return Arrays.asList(s.split("\\s+"));
+        return Arrays.asList(s.split(" "));
     }
 
     private static double jaccard(List<String> a, List<String> b) {
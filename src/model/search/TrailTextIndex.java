@@ -0,0 +1,352 @@
+package model.search;
+
+import java.util.*;
+
+import model.trail.Trail;
+import model.trail.TrailBitmap;
+import model.trail.TrailColumnStore;
+import model.trail.TrailIndexSnapshot;
+
+/**
+ * Field-aware inverted index over one TrailIndexSnapshot's live trails,
+ * for relevance-ranked text search (BM25F).
+ *
+ * Every trail is a document with five fields (name, park, state, zipcode,
+ * topic), tokenized like TrailNameIndex. A term's posting list holds the
+ * ordinals of the trails containing it, ascending, together with the
+ * trail's precomputed BM25 impact for the term:
+ *
+ *   tf~ = sum over fields of weight(f) * tf(f) / (1 - B + B * len(f) / avgLen(f))
+ *   impact = tf~ / (K1 + tf~),   score = sum over query terms of idf * impact
+ *
+ * so a query only walks the postings of its own terms and never touches a
+ * Trail or builds a string. Terms live in a TrailTokenTrie (term -> term
+ * number), which expands each query token to the terms starting with it or
+ * within a typo or two of it, as in TrailNameIndex.
+ *
+ * The index is immutable and describes exactly one snapshot (the ordinals
+ * are that snapshot's rows); build it again for a newer snapshot.
+ */
+public final class TrailTextIndex {
+
+    /** Searchable fields, in column order */
+    public enum Field {
+        NAME(3.0), PARK(1.5), STATE(1.0), ZIPCODE(1.0), TOPIC(1.0);
+
+        final double weight;
+
+        Field(double weight) {
+            this.weight = weight;
+        }
+    }
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    // a prefix or typo hit counts for less than the exact term
+    private static final double PREFIX_FACTOR = 0.8;
+    private static final double TYPO_FACTOR = 0.5;
+
+    public static final TrailTextIndex EMPTY = new TrailTextIndex(TrailTokenTrie.EMPTY, new Posting[0], 0);
+
+    private final TrailTokenTrie terms;      // term -> its term number (one id per term)
+    private final Posting[] postings;        // by term number
+    private final int docs;
+
+    private static final class Posting {
+        final int[] rows;          // ascending ordinals
+        final float[] impact;      // parallel to rows
+        final double idf;
+
+        Posting(int[] rows, float[] impact, double idf) {
+            this.rows = rows;
+            this.impact = impact;
+            this.idf = idf;
+        }
+    }
+
+    private TrailTextIndex(TrailTokenTrie terms, Posting[] postings, int docs) {
+        this.terms = terms;
+        this.postings = postings;
+        this.docs = docs;
+    }
+
+    // ─────── Build ───────
+    /** Index over the live rows of snap, in one pass over their trails */
+    public static TrailTextIndex build(TrailIndexSnapshot snap) {
+        TrailColumnStore columns = snap.columns();
+        Field[] fields = Field.values();
+
+        // pass 1: per-row field lengths, per-term (row, tf per field) in row order
+        Map<String, TermBuilder> byTerm = new HashMap<>();
+        List<int[]> lengths = new ArrayList<>();     // per indexed row: token count per field
+        List<Integer> rows = new ArrayList<>();
+        long[] totalLen = new long[fields.length];
+
+        for (int r = 0, n = columns.rows(); r < n; r++) {
+            if (!columns.isLive(r)) continue;
+            Trail t = columns.trail(r);
+            int doc = rows.size();
+            rows.add(r);
+            int[] len = new int[fields.length];
+            for (Field f : fields) {
+                List<String> toks = TrailNameIndex.tokenize(TrailNameIndex.normalize(text(t, f)));
+                len[f.ordinal()] = toks.size();
+                totalLen[f.ordinal()] += toks.size();
+                for (String tok : toks) {
+                    byTerm.computeIfAbsent(tok, k -> new TermBuilder()).count(doc, f);
+                }
+            }
+            lengths.add(len);
+        }
+
+        int docs = rows.size();
+        if (docs == 0) return EMPTY;
+        double[] avgLen = new double[fields.length];
+        for (int f = 0; f < fields.length; f++) {
+            avgLen[f] = Math.max(1e-9, (double) totalLen[f] / docs);
+        }
+
+        // pass 2: freeze each term's postings with their impacts
+        TrailTokenTrie.Builder dict = new TrailTokenTrie.Builder();
+        Posting[] postings = new Posting[byTerm.size()];
+        int id = 0;
+        for (var e : byTerm.entrySet()) {
+            TermBuilder tb = e.getValue();
+            int[] termRows = new int[tb.size];
+            float[] impact = new float[tb.size];
+            for (int i = 0; i < tb.size; i++) {
+                int doc = tb.docs[i];
+                int[] len = lengths.get(doc);
+                double tf = 0;
+                for (Field f : fields) {
+                    int c = tb.tf[i * fields.length + f.ordinal()];
+                    if (c == 0) continue;
+                    tf += f.weight * c / (1 - B + B * len[f.ordinal()] / avgLen[f.ordinal()]);
+                }
+                termRows[i] = rows.get(doc);
+                impact[i] = (float) (tf / (K1 + tf));
+            }
+            double idf = Math.log(1 + (docs - tb.size + 0.5) / (tb.size + 0.5));
+            postings[id] = new Posting(termRows, impact, idf);
+            dict.add(e.getKey(), id);
+            id++;
+        }
+        return new TrailTextIndex(dict.build(), postings, docs);
+    }
+
+    private static String text(Trail t, Field f) {
+        switch (f) {
+            case NAME: return t.getName();
+            case PARK: return t.getPark();
+            case STATE: return t.getState();
+            case ZIPCODE: return t.getZipcode();
+            default: return t.getTopic() == null ? "" : t.getTopic().name();
+        }
+    }
+
+    // docs arrive in ascending order, so the last entry is the only one that can repeat
+    private static final class TermBuilder {
+        int[] docs = new int[4];
+        int[] tf = new int[4 * Field.values().length];
+        int size;
+
+        void count(int doc, Field f) {
+            int fields = Field.values().length;
+            if (size == 0 || docs[size - 1] != doc) {
+                if (size == docs.length) {
+                    docs = Arrays.copyOf(docs, size * 2);
+                    tf = Arrays.copyOf(tf, size * 2 * fields);
+                }
+                docs[size++] = doc;
+            }
+            tf[(size - 1) * fields + f.ordinal()]++;
+        }
+    }
+
+    // ─────── Search ───────
+    /**
+     * Ordinals of the trails matching every token of text, best BM25 score
+     * first (ties by ordinal). A token matches a term equal to it, starting
+     * with it, or within its typo budget; within, if not null, restricts the
+     * rows (e.g. to a filter's bitmap).
+     */
+    public int[] search(String text, TrailBitmap within) {
+        return search(tokens(text), within);
+    }
+
+    /** text split into query tokens the way the index tokenizes trails */
+    public static List<String> tokens(String text) {
+        return TrailNameIndex.tokenize(TrailNameIndex.normalize(text));
+    }
+
+    /** As search(String, TrailBitmap), for already split query tokens */
+    public int[] search(List<String> queryTokens, TrailBitmap within) {
+        List<String> toks = new ArrayList<>();
+        for (String q : queryTokens) toks.addAll(tokens(q));
+        if (toks.isEmpty() || docs == 0) return new int[0];
+
+        // each token's terms; cheapest token first
+        List<Expansion> exps = new ArrayList<>();
+        for (String tok : toks) {
+            Expansion e = expand(tok);
+            if (e.postings == 0) return new int[0];
+            exps.add(e);
+        }
+        exps.sort(Comparator.comparingLong(e -> e.postings));
+
+        // start from the smaller of the filter and the cheapest token's postings, then
+        // merge each further token's postings, or probe them per candidate when that is cheaper
+        Scored acc;
+        int next = 0;
+        if (within != null && within.cardinality() < exps.get(0).postings) {
+            int[] rows = within.toArray();
+            acc = new Scored(rows, new double[rows.length], rows.length);
+        } else {
+            acc = materialize(exps.get(next++), within);
+        }
+        for (; next < exps.size() && acc.size > 0; next++) {
+            Expansion e = exps.get(next);
+            long probeCost = (long) acc.size * e.factor.size() * PROBE_COST;
+            acc = (probeCost < e.postings) ? probe(acc, e) : acc.and(materialize(e, null));
+        }
+        return acc.ranked();
+    }
+
+    // ~ log2 of a posting list: one binary search stands in for this many sequential steps
+    private static final int PROBE_COST = 20;
+
+    /** The terms a query token matches, with their match factor, and their total posting length */
+    private static final class Expansion {
+        final Map<Integer, Double> factor = new HashMap<>();     // term number -> match factor
+        long postings;
+    }
+
+    private Expansion expand(String tok) {
+        Expansion e = new Expansion();
+        terms.forEachWithPrefix(tok, t -> e.factor.merge(t, PREFIX_FACTOR, Math::max));
+        for (int t : terms.exact(tok)) e.factor.put(t, 1.0);
+        int budget = TrailNameIndex.maxEdits(tok);
+        if (budget > 0) {
+            terms.forEachWithin(tok, budget, (t, d) -> {
+                if (d > 0) e.factor.merge(t, TYPO_FACTOR / d, Math::max);
+            });
+        }
+        for (int t : e.factor.keySet()) e.postings += postings[t].rows.length;
+        return e;
+    }
+
+    // merged postings of every term of the expansion: best contribution per row
+    private Scored materialize(Expansion e, TrailBitmap within) {
+        int[] rows = new int[(int) e.postings];
+        double[] scores = new double[rows.length];
+        int n = 0;
+        for (var t : e.factor.entrySet()) {
+            Posting p = postings[t.getKey()];
+            double w = p.idf * t.getValue();
+            for (int i = 0; i < p.rows.length; i++) {
+                if (within != null && !within.contains(p.rows[i])) continue;
+                rows[n] = p.rows[i];
+                scores[n++] = w * p.impact[i];
+            }
+        }
+        return e.factor.size() == 1 ? new Scored(rows, scores, n) : Scored.merge(rows, scores, n);
+    }
+
+    // keep the candidates found in the expansion's postings (binary search), adding their best contribution
+    private Scored probe(Scored acc, Expansion e) {
+        int[] rows = new int[acc.size];
+        double[] scores = new double[acc.size];
+        int n = 0;
+        for (int i = 0; i < acc.size; i++) {
+            double best = -1;
+            for (var t : e.factor.entrySet()) {
+                Posting p = postings[t.getKey()];
+                int at = Arrays.binarySearch(p.rows, acc.rows[i]);
+                if (at >= 0) best = Math.max(best, p.idf * t.getValue() * p.impact[at]);
+            }
+            if (best < 0) continue;
+            rows[n] = acc.rows[i];
+            scores[n++] = acc.scores[i] + best;
+        }
+        return new Scored(rows, scores, n);
+    }
+
+    /** Number of distinct terms */
+    public int terms() {
+        return terms.size();
+    }
+
+    /** Number of indexed trails */
+    public int size() {
+        return docs;
+    }
+
+    // rows ascending, with a score each
+    private static final class Scored {
+        final int[] rows;
+        final double[] scores;
+        final int size;
+
+        Scored(int[] rows, double[] scores, int size) {
+            this.rows = rows;
+            this.scores = scores;
+            this.size = size;
+        }
+
+        // several terms' postings: sort by row, keep the best score per row
+        // (row, index) packed into longs, so sorting stays primitive
+        static Scored merge(int[] rows, double[] scores, int n) {
+            long[] order = new long[n];
+            for (int i = 0; i < n; i++) order[i] = ((long) rows[i] << 32) | i;
+            Arrays.sort(order);
+            int[] r = new int[n];
+            double[] s = new double[n];
+            int m = 0;
+            for (long key : order) {
+                int i = (int) key;
+                if (m > 0 && r[m - 1] == rows[i]) {
+                    s[m - 1] = Math.max(s[m - 1], scores[i]);
+                } else {
+                    r[m] = rows[i];
+                    s[m++] = scores[i];
+                }
+            }
+            return new Scored(r, s, m);
+        }
+
+        Scored and(Scored o) {
+            int[] r = new int[Math.min(size, o.size)];
+            double[] s = new double[r.length];
+            int i = 0, j = 0, n = 0;
+            while (i < size && j < o.size) {
+                if (rows[i] < o.rows[j]) i++;
+                else if (rows[i] > o.rows[j]) j++;
+                else {
+                    r[n] = rows[i];
+                    s[n++] = scores[i++] + o.scores[j++];
+                }
+            }
+            return new Scored(r, s, n);
+        }
+
+        // score descending, then row: each score is replaced by its rank among the distinct
+        // scores, and (rank, row) packed into a long, so both sorts stay primitive
+        int[] ranked() {
+            double[] distinct = Arrays.copyOf(scores, size);
+            Arrays.sort(distinct);
+            int d = 0;
+            for (int i = 0; i < size; i++) {
+                if (d == 0 || distinct[d - 1] != distinct[i]) distinct[d++] = distinct[i];
+            }
+            long[] order = new long[size];
+            for (int i = 0; i < size; i++) {
+                int rank = Arrays.binarySearch(distinct, 0, d, scores[i]);
+                order[i] = ((long) (d - 1 - rank) << 32) | rows[i];
+            }
+            Arrays.sort(order);
+            int[] out = new int[size];
+            for (int i = 0; i < size; i++) out[i] = (int) order[i];
+            return out;
+        }
+    }
+}
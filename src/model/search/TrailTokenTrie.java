@@ -0,0 +1,296 @@
+package model.search;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable token dictionary: a character trie whose nodes carry the ids of
+ * the trails containing the token that ends there.
+ *
+ * Children are kept as a sorted char[] / Node[] pair (binary search, no
+ * per-edge objects). with() copies only the nodes on the token's path and
+ * returns a new trie, so a published trie is read-only and can be shared
+ * across threads without locks, exactly like the model.trail snapshots.
+ *
+ * Prefix expansion walks the prefix (O(prefix length)) and then only the
+ * subtree below it (O(matching tokens)), never the whole vocabulary.
+ *
+ * Typo lookup (forEachWithin) runs the edit-distance DP down the trie, one
+ * row per node, so tokens sharing a prefix share its rows; a subtree is cut
+ * off as soon as its row has no cell within the edit budget. For 1-2 edits
+ * that visits a small fringe of the trie rather than every token.
+ */
+public final class TrailTokenTrie {
+
+    private static final char[] NO_LABELS = new char[0];
+    private static final Node[] NO_KIDS = new Node[0];
+    private static final int[] NO_IDS = new int[0];
+
+    private static final class Node {
+        final char[] labels;     // ascending
+        final Node[] kids;       // parallel to labels
+        final int[] ids;         // ascending; trails with the token ending here
+
+        Node(char[] labels, Node[] kids, int[] ids) {
+            this.labels = labels;
+            this.kids = kids;
+            this.ids = ids;
+        }
+
+        Node child(char c) {
+            int i = Arrays.binarySearch(labels, c);
+            return i >= 0 ? kids[i] : null;
+        }
+    }
+
+    public static final TrailTokenTrie EMPTY = new TrailTokenTrie(new Node(NO_LABELS, NO_KIDS, NO_IDS), 0);
+
+    private final Node root;
+    private final int tokens;
+
+    private TrailTokenTrie(Node root, int tokens) {
+        this.root = root;
+        this.tokens = tokens;
+    }
+
+    // ─────── Updates (return a new trie) ───────
+    /** Trie where token also lists id (this trie if it already does) */
+    public TrailTokenTrie with(String token, int id) {
+        boolean[] newToken = { false };
+        Node r = with(root, token, 0, id, newToken);
+        return r == root ? this : new TrailTokenTrie(r, tokens + (newToken[0] ? 1 : 0));
+    }
+
+    private static Node with(Node n, String token, int depth, int id, boolean[] newToken) {
+        if (depth == token.length()) {
+            int at = Arrays.binarySearch(n.ids, id);
+            if (at >= 0) return n;
+            newToken[0] = n.ids.length == 0;
+            int ins = -at - 1;
+            int[] ids = new int[n.ids.length + 1];
+            System.arraycopy(n.ids, 0, ids, 0, ins);
+            ids[ins] = id;
+            System.arraycopy(n.ids, ins, ids, ins + 1, n.ids.length - ins);
+            return new Node(n.labels, n.kids, ids);
+        }
+
+        char c = token.charAt(depth);
+        int i = Arrays.binarySearch(n.labels, c);
+        if (i >= 0) {
+            Node kid = with(n.kids[i], token, depth + 1, id, newToken);
+            if (kid == n.kids[i]) return n;
+            Node[] kids = n.kids.clone();
+            kids[i] = kid;
+            return new Node(n.labels, kids, n.ids);
+        }
+
+        int ins = -i - 1;
+        char[] labels = new char[n.labels.length + 1];
+        Node[] kids = new Node[n.kids.length + 1];
+        System.arraycopy(n.labels, 0, labels, 0, ins);
+        System.arraycopy(n.kids, 0, kids, 0, ins);
+        labels[ins] = c;
+        kids[ins] = with(new Node(NO_LABELS, NO_KIDS, NO_IDS), token, depth + 1, id, newToken);
+        System.arraycopy(n.labels, ins, labels, ins + 1, n.labels.length - ins);
+        System.arraycopy(n.kids, ins, kids, ins + 1, n.kids.length - ins);
+        return new Node(labels, kids, n.ids);
+    }
+
+    /**
+     * Trie where every token of the batch also lists its ids (in any order,
+     * repeats allowed). The batch is merged in one sorted pass, so each node
+     * on the touched paths is copied once per batch, not once per (token, id),
+     * and each posting array is rebuilt once.
+     */
+    public TrailTokenTrie withAll(Map<String, int[]> idsByToken) {
+        if (idsByToken.isEmpty()) return this;
+        String[] toks = idsByToken.keySet().toArray(new String[0]);
+        Arrays.sort(toks);
+        int[][] ids = new int[toks.length][];
+        for (int i = 0; i < toks.length; i++) ids[i] = idsByToken.get(toks[i]);
+        int[] newTokens = { 0 };
+        Node r = merge(root, toks, ids, 0, toks.length, 0, newTokens);
+        return new TrailTokenTrie(r, tokens + newTokens[0]);
+    }
+
+    // toks[lo, hi) all share their first depth chars, which lead to n
+    private static Node merge(Node n, String[] toks, int[][] ids, int lo, int hi, int depth, int[] newTokens) {
+        int[] nodeIds = n.ids;
+        if (toks[lo].length() == depth) {                 // sorts first: the token ending here
+            nodeIds = union(n.ids, ids[lo]);
+            if (n.ids.length == 0 && nodeIds.length > 0) newTokens[0]++;
+            lo++;
+        }
+        if (lo == hi) return nodeIds == n.ids ? n : new Node(n.labels, n.kids, nodeIds);
+
+        // children: existing labels merged with the batch's next chars, both ascending
+        char[] labels = new char[n.labels.length + (hi - lo)];
+        Node[] kids = new Node[labels.length];
+        int k = 0, e = 0;
+        while (lo < hi) {
+            char c = toks[lo].charAt(depth);
+            int end = lo;
+            while (end < hi && toks[end].charAt(depth) == c) end++;
+            while (e < n.labels.length && n.labels[e] < c) {
+                labels[k] = n.labels[e];
+                kids[k++] = n.kids[e++];
+            }
+            Node kid = (e < n.labels.length && n.labels[e] == c) ? n.kids[e++] : new Node(NO_LABELS, NO_KIDS, NO_IDS);
+            labels[k] = c;
+            kids[k++] = merge(kid, toks, ids, lo, end, depth + 1, newTokens);
+            lo = end;
+        }
+        while (e < n.labels.length) {
+            labels[k] = n.labels[e];
+            kids[k++] = n.kids[e++];
+        }
+        return new Node(Arrays.copyOf(labels, k), Arrays.copyOf(kids, k), nodeIds);
+    }
+
+    // sorted, distinct union of a (sorted, distinct) and b (any order)
+    private static int[] union(int[] a, int[] b) {
+        int[] add = b.clone();
+        Arrays.sort(add);
+        int[] out = new int[a.length + add.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length || j < add.length) {
+            int v = (j == add.length || (i < a.length && a[i] <= add[j])) ? a[i++] : add[j++];
+            if (n == 0 || out[n - 1] != v) out[n++] = v;
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    /**
+     * Bulk construction for a whole dictionary at once: mutable nodes, frozen
+     * once by build(), instead of one path copy per with().
+     */
+    public static final class Builder {
+        private static final class MNode {
+            final TreeMap<Character, MNode> kids = new TreeMap<>();
+            int[] ids = NO_IDS;
+        }
+
+        private final MNode root = new MNode();
+        private int tokens;
+
+        public Builder add(String token, int id) {
+            MNode n = root;
+            for (int i = 0; i < token.length(); i++) {
+                n = n.kids.computeIfAbsent(token.charAt(i), c -> new MNode());
+            }
+            int at = Arrays.binarySearch(n.ids, id);
+            if (at < 0) {
+                if (n.ids.length == 0) tokens++;
+                int ins = -at - 1;
+                int[] ids = new int[n.ids.length + 1];
+                System.arraycopy(n.ids, 0, ids, 0, ins);
+                ids[ins] = id;
+                System.arraycopy(n.ids, ins, ids, ins + 1, n.ids.length - ins);
+                n.ids = ids;
+            }
+            return this;
+        }
+
+        public TrailTokenTrie build() {
+            return new TrailTokenTrie(freeze(root), tokens);
+        }
+
+        private static Node freeze(MNode m) {
+            if (m.kids.isEmpty()) return new Node(NO_LABELS, NO_KIDS, m.ids);
+            char[] labels = new char[m.kids.size()];
+            Node[] kids = new Node[labels.length];
+            int i = 0;
+            for (var e : m.kids.entrySet()) {     // TreeMap: labels come out ascending
+                labels[i] = e.getKey();
+                kids[i++] = freeze(e.getValue());
+            }
+            return new Node(labels, kids, m.ids);
+        }
+    }
+
+    // ─────── Lookup ───────
+    private Node find(String prefix) {
+        Node n = root;
+        for (int i = 0; i < prefix.length() && n != null; i++) {
+            n = n.child(prefix.charAt(i));
+        }
+        return n;
+    }
+
+    /** Ids listed under exactly this token (ascending, empty if none) */
+    public int[] exact(String token) {
+        Node n = find(token);
+        return n == null ? NO_IDS : n.ids.clone();
+    }
+
+    /**
+     * Every id listed under a token starting with prefix (the token itself
+     * included). An id appears once per matching token, so callers that
+     * need a set should collect into one.
+     */
+    public void forEachWithPrefix(String prefix, IntConsumer action) {
+        Node n = find(prefix);
+        if (n != null) walk(n, action);
+    }
+
+    private static void walk(Node n, IntConsumer action) {
+        for (int id : n.ids) action.accept(id);
+        for (Node k : n.kids) walk(k, action);
+    }
+
+    /** Receives one id listed under a token within the edit budget, with that token's distance */
+    @FunctionalInterface
+    public interface EditVisitor {
+        void visit(int id, int edits);
+    }
+
+    /**
+     * Every id listed under a token within maxEdits of token, counting
+     * insertions, deletions, substitutions and swaps of adjacent characters
+     * (optimal string alignment distance). As with prefixes, an id appears
+     * once per matching token.
+     */
+    public void forEachWithin(String token, int maxEdits, EditVisitor visitor) {
+        int[] row = new int[token.length() + 1];
+        for (int j = 0; j < row.length; j++) row[j] = j;
+        if (row[token.length()] <= maxEdits) {
+            for (int id : root.ids) visitor.visit(id, row[token.length()]);
+        }
+        for (int i = 0; i < root.kids.length; i++) {
+            within(root.kids[i], root.labels[i], (char) 0, token, null, row, maxEdits, visitor);
+        }
+    }
+
+    // row = distances from token[0..j) to the path ending in c; prev/prev2 are the parent's and grandparent's rows
+    private static void within(Node n, char c, char parentC, String token, int[] prev2, int[] prev,
+                               int maxEdits, EditVisitor visitor) {
+        int len = token.length();
+        int[] row = new int[len + 1];
+        row[0] = prev[0] + 1;
+        int best = row[0];
+        for (int j = 1; j <= len; j++) {
+            char tj = token.charAt(j - 1);
+            int d = Math.min(Math.min(row[j - 1], prev[j]) + 1, prev[j - 1] + (tj == c ? 0 : 1));
+            if (prev2 != null && j > 1 && tj == parentC && token.charAt(j - 2) == c) {
+                d = Math.min(d, prev2[j - 2] + 1);
+            }
+            row[j] = d;
+            best = Math.min(best, d);
+        }
+        if (row[len] <= maxEdits) {
+            for (int id : n.ids) visitor.visit(id, row[len]);
+        }
+        // a swap reaching into the next row costs at least this row's minimum, so the cut is safe
+        if (best > maxEdits) return;
+        for (int i = 0; i < n.kids.length; i++) {
+            within(n.kids[i], n.labels[i], c, token, prev, row, maxEdits, visitor);
+        }
+    }
+
+    /** Number of distinct tokens */
+    public int size() {
+        return tokens;
+    }
+}
@@ -6,6 +6,8 @@ import java.util.Objects;
 /**
  * Represents a hiking trail with detailed environmental and management attributes.
  * Each Trail is uniquely identified by its name + park + state + zipcode.
+ * Once TrailRegistry has interned it, it also carries a dense int id, and
+ * equals between two interned trails is a single int comparison.
  */
 public class Trail implements Comparable<Trail> {
 
@@ -42,6 +44,11 @@ public class Trail implements Comparable<Trail> {
     // ─────── Alerts or Warnings ───────
     private final String alert;         // text description of hazard or maintenance
 
+    // ─────── Registry id & cached hash (not serialized) ───────
+    // Gson builds trails without running a constructor, so 0 must mean "unset" for both
+    private transient int idPlusOne;    // TrailRegistry id + 1
+    private transient int hash;         // cached hashCode()
+
     // ─────── Constructor ───────
     public Trail(
             String name,
@@ -98,15 +105,26 @@ public class Trail implements Comparable<Trail> {
         if (this == o) return true;
         if (!(o instanceof Trail)) return false;
         Trail trail = (Trail) o;
+        if (idPlusOne != 0 && trail.idPlusOne != 0) return idPlusOne == trail.idPlusOne;  // both interned
         return Objects.equals(name, trail.name) &&
                Objects.equals(park, trail.park) &&
                Objects.equals(state, trail.state) &&
                Objects.equals(zipcode, trail.zipcode);
     }
 
+    // same value as Objects.hash(name, park, state, zipcode), without the varargs array
     @Override
     public int hashCode() {
-        return Objects.hash(name, park, state, zipcode);
+        int h = hash;
+        if (h == 0) {
+            h = 1;
+            h = 31 * h + Objects.hashCode(name);
+            h = 31 * h + Objects.hashCode(park);
+            h = 31 * h + Objects.hashCode(state);
+            h = 31 * h + Objects.hashCode(zipcode);
+            hash = h;
+        }
+        return h;
     }
 
     @Override
@@ -120,6 +138,12 @@ public class Trail implements Comparable<Trail> {
     }
     
 
+    // ─────── Registry id ───────
+    /** Dense id assigned by TrailRegistry, or -1 if this trail was never interned */
+    public int getId() { return idPlusOne - 1; }
+
+    void assignId(int id) { idPlusOne = id + 1; }
+
     // ─────── Getters ───────
     public String getName() { return name; }
     public String getPark() { return park; }
@@ -0,0 +1,644 @@
+package model.trail;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable compressed bitmap of non-negative ints (Roaring-style).
+ *
+ * The int space is cut into 2^16-wide blocks. Each non-empty block is one
+ * container, chosen by density:
+ *  - array container : sorted char[] of the low 16 bits (up to 4096 values)
+ *  - bitmap container: long[1024], one bit per value
+ * so sparse posting lists cost 2 bytes per entry and dense ones 1 bit.
+ * and / or / andNot work container by container and never decode to int[].
+ *
+ * Used for the TrailIndex posting lists, keyed by trail ordinal. Updates
+ * return a new bitmap that shares every untouched container.
+ */
+public final class TrailBitmap {
+
+    private static final int ARRAY_MAX = 4096;        // above this a bitmap container is smaller
+    private static final int BITMAP_WORDS = 1024;     // 65536 bits
+
+    public static final TrailBitmap EMPTY = new TrailBitmap(new char[0], new Container[0]);
+
+    private final char[] keys;              // high 16 bits, ascending
+    private final Container[] containers;   // parallel to keys, never empty
+
+    private TrailBitmap(char[] keys, Container[] containers) {
+        this.keys = keys;
+        this.containers = containers;
+    }
+
+    public static TrailBitmap of(int... values) {
+        int[] v = values.clone();
+        Arrays.sort(v);
+        Builder b = new Builder();
+        for (int x : v) b.add(x);
+        return b.build();
+    }
+
+    private static char high(int x) { return (char) (x >>> 16); }
+    private static char low(int x) { return (char) x; }
+
+    private int find(char key) {
+        return Arrays.binarySearch(keys, key);
+    }
+
+    /* ========================= Queries ========================= */
+
+    public boolean contains(int x) {
+        if (x < 0) return false;
+        int i = find(high(x));
+        return i >= 0 && containers[i].contains(low(x));
+    }
+
+    public int cardinality() {
+        int n = 0;
+        for (Container c : containers) n += c.cardinality();
+        return n;
+    }
+
+    public boolean isEmpty() {
+        return containers.length == 0;
+    }
+
+    /** The i-th smallest value (0-based) */
+    public int select(int i) {
+        if (i < 0) throw new IndexOutOfBoundsException("Index: " + i);
+        for (int k = 0; k < containers.length; k++) {
+            int card = containers[k].cardinality();
+            if (i < card) return (keys[k] << 16) | containers[k].select(i);
+            i -= card;
+        }
+        throw new IndexOutOfBoundsException("Index: " + i);
+    }
+
+    /** Ascending walk over every value */
+    public void forEach(IntConsumer action) {
+        for (int k = 0; k < containers.length; k++) {
+            containers[k].forEach(keys[k] << 16, action);
+        }
+    }
+
+    /** Ascending iterator over every value */
+    public PrimitiveIterator.OfInt iterator() {
+        return iteratorFrom(0);
+    }
+
+    /** Ascending iterator over the values &gt;= from; starts in O(log containers) */
+    public PrimitiveIterator.OfInt iteratorFrom(int from) {
+        int first = (from <= 0) ? 0 : find(high(from));
+        int start = (first >= 0) ? first : -first - 1;
+        char lowFrom = (from <= 0 || first < 0) ? 0 : low(from);
+        return new PrimitiveIterator.OfInt() {
+            private int k = start;
+            private PrimitiveIterator.OfInt cur =
+                    (k >= containers.length) ? null : containers[k].iterator(keys[k] << 16, lowFrom);
+
+            @Override
+            public boolean hasNext() {
+                while (cur != null && !cur.hasNext()) {
+                    k++;
+                    cur = (k < containers.length) ? containers[k].iterator(keys[k] << 16, (char) 0) : null;
+                }
+                return cur != null;
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return cur.nextInt();
+            }
+        };
+    }
+
+    public int[] toArray() {
+        int[] out = new int[cardinality()];
+        int[] n = { 0 };
+        forEach(x -> out[n[0]++] = x);
+        return out;
+    }
+
+    /* ========================= Single-value updates ========================= */
+
+    /** New bitmap that also contains x */
+    public TrailBitmap with(int x) {
+        if (x < 0) throw new IllegalArgumentException("negative value: " + x);
+        char hk = high(x);
+        int i = find(hk);
+        if (i >= 0) {
+            Container c = containers[i].with(low(x));
+            if (c == containers[i]) return this;
+            Container[] nc = containers.clone();
+            nc[i] = c;
+            return new TrailBitmap(keys, nc);
+        }
+        int at = -i - 1;
+        char[] nk = new char[keys.length + 1];
+        Container[] nc = new Container[keys.length + 1];
+        System.arraycopy(keys, 0, nk, 0, at);
+        System.arraycopy(containers, 0, nc, 0, at);
+        nk[at] = hk;
+        nc[at] = new ArrayContainer(new char[] { low(x) }, 1);
+        System.arraycopy(keys, at, nk, at + 1, keys.length - at);
+        System.arraycopy(containers, at, nc, at + 1, keys.length - at);
+        return new TrailBitmap(nk, nc);
+    }
+
+    /** New bitmap without x */
+    public TrailBitmap without(int x) {
+        if (x < 0) return this;
+        int i = find(high(x));
+        if (i < 0) return this;
+        Container c = containers[i].without(low(x));
+        if (c == containers[i]) return this;
+        if (c.cardinality() > 0) {
+            Container[] nc = containers.clone();
+            nc[i] = c;
+            return new TrailBitmap(keys, nc);
+        }
+        char[] nk = new char[keys.length - 1];
+        Container[] nc = new Container[keys.length - 1];
+        System.arraycopy(keys, 0, nk, 0, i);
+        System.arraycopy(containers, 0, nc, 0, i);
+        System.arraycopy(keys, i + 1, nk, i, keys.length - i - 1);
+        System.arraycopy(containers, i + 1, nc, i, keys.length - i - 1);
+        return new TrailBitmap(nk, nc);
+    }
+
+    /* ========================= Set algebra ========================= */
+
+    public TrailBitmap and(TrailBitmap o) {
+        Builder b = new Builder();
+        int i = 0, j = 0;
+        while (i < keys.length && j < o.keys.length) {
+            if (keys[i] < o.keys[j]) i++;
+            else if (keys[i] > o.keys[j]) j++;
+            else {
+                b.append(keys[i], containers[i].and(o.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return b.build();
+    }
+
+    public TrailBitmap or(TrailBitmap o) {
+        Builder b = new Builder();
+        int i = 0, j = 0;
+        while (i < keys.length || j < o.keys.length) {
+            if (j >= o.keys.length || (i < keys.length && keys[i] < o.keys[j])) {
+                b.append(keys[i], containers[i++]);
+            } else if (i >= keys.length || keys[i] > o.keys[j]) {
+                b.append(o.keys[j], o.containers[j++]);
+            } else {
+                b.append(keys[i], containers[i].or(o.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return b.build();
+    }
+
+    /**
+     * Union of many bitmaps in one pass: containers of the same block are
+     * ORed into one bit block, so the cost is O(total values + blocks)
+     * rather than copying a growing result once per input.
+     */
+    public static TrailBitmap orAll(List<TrailBitmap> bitmaps) {
+        if (bitmaps.size() == 1) return bitmaps.get(0);
+        int maxKey = -1;
+        for (TrailBitmap b : bitmaps) {
+            if (b.keys.length > 0) maxKey = Math.max(maxKey, b.keys[b.keys.length - 1]);
+        }
+        if (maxKey < 0) return EMPTY;
+
+        Container[] only = new Container[maxKey + 1];    // a block seen once is shared as is
+        long[][] merged = new long[maxKey + 1][];
+        for (TrailBitmap b : bitmaps) {
+            for (int i = 0; i < b.keys.length; i++) {
+                char k = b.keys[i];
+                if (merged[k] == null && only[k] == null) {
+                    only[k] = b.containers[i];
+                    continue;
+                }
+                if (merged[k] == null) merged[k] = only[k].toBits();
+                b.containers[i].orInto(merged[k]);
+            }
+        }
+        Builder out = new Builder();
+        for (int k = 0; k <= maxKey; k++) {
+            if (merged[k] != null) out.append((char) k, fromBits(merged[k]));
+            else if (only[k] != null) out.append((char) k, only[k]);
+        }
+        return out.build();
+    }
+
+    public TrailBitmap andNot(TrailBitmap o) {
+        Builder b = new Builder();
+        int j = 0;
+        for (int i = 0; i < keys.length; i++) {
+            while (j < o.keys.length && o.keys[j] < keys[i]) j++;
+            if (j < o.keys.length && o.keys[j] == keys[i]) {
+                b.append(keys[i], containers[i].andNot(o.containers[j]));
+            } else {
+                b.append(keys[i], containers[i]);
+            }
+        }
+        return b.build();
+    }
+
+    /** |this ∩ o| without building the intersection */
+    public int andCardinality(TrailBitmap o) {
+        int n = 0, i = 0, j = 0;
+        while (i < keys.length && j < o.keys.length) {
+            if (keys[i] < o.keys[j]) i++;
+            else if (keys[i] > o.keys[j]) j++;
+            else n += containers[i++].and(o.containers[j++]).cardinality();
+        }
+        return n;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TrailBitmap)) return false;
+        return Arrays.equals(toArray(), ((TrailBitmap) o).toArray());
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(toArray());
+    }
+
+    @Override
+    public String toString() {
+        return "TrailBitmap" + Arrays.toString(toArray());
+    }
+
+    /* ========================= Builder ========================= */
+
+    /**
+     * Mutable builder for bulk loads. add() takes values in ascending order
+     * (e.g. ordinals as they are assigned); build() freezes the result.
+     */
+    public static final class Builder {
+        private char[] keys = new char[4];
+        private Container[] containers = new Container[4];
+        private int n = 0;
+
+        // pending values of the current block, before they become a container
+        private char curKey;
+        private char[] buf = new char[16];
+        private int bufLen = 0;
+        private long[] bits;              // switches to a bitmap once the block is dense
+
+        public Builder add(int x) {
+            if (x < 0) throw new IllegalArgumentException("negative value: " + x);
+            char hk = high(x);
+            boolean pending = bufLen > 0 || bits != null;
+            if ((pending && hk < curKey) || (!pending && n > 0 && hk <= keys[n - 1]))
+                throw new IllegalArgumentException("values must be added in ascending order");
+            if (pending && hk != curKey) flush();
+            curKey = hk;
+            char lo = low(x);
+            if (bits != null) {
+                bits[lo >>> 6] |= 1L << lo;
+                return this;
+            }
+            if (bufLen > 0 && buf[bufLen - 1] >= lo) {
+                if (buf[bufLen - 1] == lo) return this;
+                throw new IllegalArgumentException("values must be added in ascending order");
+            }
+            if (bufLen == ARRAY_MAX) {
+                bits = new long[BITMAP_WORDS];
+                for (int i = 0; i < bufLen; i++) bits[buf[i] >>> 6] |= 1L << buf[i];
+                bits[lo >>> 6] |= 1L << lo;
+                bufLen = 0;
+                return this;
+            }
+            if (bufLen == buf.length) buf = Arrays.copyOf(buf, buf.length * 2);
+            buf[bufLen++] = lo;
+            return this;
+        }
+
+        private void flush() {
+            if (bits != null) {
+                append(curKey, new BitmapContainer(bits, BitmapContainer.count(bits)));
+                bits = null;
+            } else if (bufLen > 0) {
+                append(curKey, new ArrayContainer(Arrays.copyOf(buf, bufLen), bufLen));
+            }
+            bufLen = 0;
+        }
+
+        // append a finished container for a block above every block so far
+        void append(char key, Container c) {
+            if (c.cardinality() == 0) return;
+            if (n == keys.length) {
+                keys = Arrays.copyOf(keys, n * 2);
+                containers = Arrays.copyOf(containers, n * 2);
+            }
+            keys[n] = key;
+            containers[n++] = c;
+        }
+
+        public TrailBitmap build() {
+            flush();
+            if (n == 0) return EMPTY;
+            return new TrailBitmap(Arrays.copyOf(keys, n), Arrays.copyOf(containers, n));
+        }
+    }
+
+    /* ========================= Containers ========================= */
+
+    private abstract static class Container {
+        abstract int cardinality();
+        abstract boolean contains(char x);
+        abstract Container with(char x);
+        abstract Container without(char x);
+        abstract int select(int i);
+        abstract void forEach(int base, IntConsumer action);
+        abstract PrimitiveIterator.OfInt iterator(int base, char from);   // low bits >= from
+        abstract Container and(Container o);
+        abstract Container or(Container o);
+        abstract Container andNot(Container o);
+
+        /** Sets this container's values in bits */
+        abstract void orInto(long[] bits);
+
+        /** Bitmap form (a copy when this is an array container) */
+        abstract long[] toBits();
+    }
+
+    private static Container fromBits(long[] bits) {
+        int card = BitmapContainer.count(bits);
+        if (card > ARRAY_MAX) return new BitmapContainer(bits, card);
+        char[] vals = new char[card];
+        int n = 0;
+        for (int w = 0; w < BITMAP_WORDS; w++) {
+            for (long m = bits[w]; m != 0; m &= m - 1) {
+                vals[n++] = (char) ((w << 6) + Long.numberOfTrailingZeros(m));
+            }
+        }
+        return new ArrayContainer(vals, card);
+    }
+
+    private static final class ArrayContainer extends Container {
+        final char[] vals;   // sorted, exactly card long
+        final int card;
+
+        ArrayContainer(char[] vals, int card) {
+            this.vals = vals;
+            this.card = card;
+        }
+
+        @Override int cardinality() { return card; }
+
+        @Override
+        boolean contains(char x) {
+            return Arrays.binarySearch(vals, 0, card, x) >= 0;
+        }
+
+        @Override
+        Container with(char x) {
+            int i = Arrays.binarySearch(vals, 0, card, x);
+            if (i >= 0) return this;
+            if (card == ARRAY_MAX) {
+                long[] bits = toBits();
+                bits[x >>> 6] |= 1L << x;
+                return new BitmapContainer(bits, card + 1);
+            }
+            int at = -i - 1;
+            char[] nv = new char[card + 1];
+            System.arraycopy(vals, 0, nv, 0, at);
+            nv[at] = x;
+            System.arraycopy(vals, at, nv, at + 1, card - at);
+            return new ArrayContainer(nv, card + 1);
+        }
+
+        @Override
+        Container without(char x) {
+            int i = Arrays.binarySearch(vals, 0, card, x);
+            if (i < 0) return this;
+            char[] nv = new char[card - 1];
+            System.arraycopy(vals, 0, nv, 0, i);
+            System.arraycopy(vals, i + 1, nv, i, card - i - 1);
+            return new ArrayContainer(nv, card - 1);
+        }
+
+        @Override int select(int i) { return vals[i]; }
+
+        @Override
+        void forEach(int base, IntConsumer action) {
+            for (int i = 0; i < card; i++) action.accept(base | vals[i]);
+        }
+
+        @Override
+        PrimitiveIterator.OfInt iterator(int base, char from) {
+            int at = Arrays.binarySearch(vals, 0, card, from);
+            return new PrimitiveIterator.OfInt() {
+                int i = (at >= 0) ? at : -at - 1;
+                @Override public boolean hasNext() { return i < card; }
+                @Override public int nextInt() {
+                    if (i >= card) throw new NoSuchElementException();
+                    return base | vals[i++];
+                }
+            };
+        }
+
+        @Override
+        Container and(Container o) {
+            char[] out = new char[Math.min(card, o.cardinality())];
+            int n = 0;
+            if (o instanceof ArrayContainer) {
+                ArrayContainer a = (ArrayContainer) o;
+                int i = 0, j = 0;
+                while (i < card && j < a.card) {
+                    if (vals[i] < a.vals[j]) i++;
+                    else if (vals[i] > a.vals[j]) j++;
+                    else { out[n++] = vals[i]; i++; j++; }
+                }
+            } else {
+                long[] bits = ((BitmapContainer) o).bits;
+                for (int i = 0; i < card; i++) {
+                    char v = vals[i];
+                    if ((bits[v >>> 6] & (1L << v)) != 0) out[n++] = v;
+                }
+            }
+            return new ArrayContainer(Arrays.copyOf(out, n), n);
+        }
+
+        @Override
+        Container or(Container o) {
+            if (o instanceof BitmapContainer) return o.or(this);
+            ArrayContainer a = (ArrayContainer) o;
+            if (card + a.card > ARRAY_MAX) {
+                long[] bits = toBits();
+                for (int j = 0; j < a.card; j++) bits[a.vals[j] >>> 6] |= 1L << a.vals[j];
+                return fromBits(bits);
+            }
+            char[] out = new char[card + a.card];
+            int i = 0, j = 0, n = 0;
+            while (i < card || j < a.card) {
+                if (j >= a.card || (i < card && vals[i] < a.vals[j])) out[n++] = vals[i++];
+                else if (i >= card || vals[i] > a.vals[j]) out[n++] = a.vals[j++];
+                else { out[n++] = vals[i]; i++; j++; }
+            }
+            return new ArrayContainer(Arrays.copyOf(out, n), n);
+        }
+
+        @Override
+        Container andNot(Container o) {
+            char[] out = new char[card];
+            int n = 0;
+            for (int i = 0; i < card; i++) {
+                if (!o.contains(vals[i])) out[n++] = vals[i];
+            }
+            return new ArrayContainer(Arrays.copyOf(out, n), n);
+        }
+
+        @Override
+        void orInto(long[] bits) {
+            for (int i = 0; i < card; i++) bits[vals[i] >>> 6] |= 1L << vals[i];
+        }
+
+        @Override
+        long[] toBits() {
+            long[] bits = new long[BITMAP_WORDS];
+            for (int i = 0; i < card; i++) bits[vals[i] >>> 6] |= 1L << vals[i];
+            return bits;
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+        final long[] bits;
+        final int card;
+
+        BitmapContainer(long[] bits, int card) {
+            this.bits = bits;
+            this.card = card;
+        }
+
+        static int count(long[] bits) {
+            int c = 0;
+            for (long w : bits) c += Long.bitCount(w);
+            return c;
+        }
+
+        @Override int cardinality() { return card; }
+
+        @Override
+        boolean contains(char x) {
+            return (bits[x >>> 6] & (1L << x)) != 0;
+        }
+
+        @Override
+        Container with(char x) {
+            if (contains(x)) return this;
+            long[] nb = bits.clone();
+            nb[x >>> 6] |= 1L << x;
+            return new BitmapContainer(nb, card + 1);
+        }
+
+        @Override
+        Container without(char x) {
+            if (!contains(x)) return this;
+            long[] nb = bits.clone();
+            nb[x >>> 6] &= ~(1L << x);
+            return (card - 1 > ARRAY_MAX) ? new BitmapContainer(nb, card - 1) : fromBits(nb);
+        }
+
+        @Override
+        int select(int i) {
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                int c = Long.bitCount(bits[w]);
+                if (i < c) {
+                    long m = bits[w];
+                    for (int k = 0; k < i; k++) m &= m - 1;
+                    return (w << 6) + Long.numberOfTrailingZeros(m);
+                }
+                i -= c;
+            }
+            throw new IndexOutOfBoundsException();
+        }
+
+        @Override
+        void forEach(int base, IntConsumer action) {
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                for (long m = bits[w]; m != 0; m &= m - 1) {
+                    action.accept(base | ((w << 6) + Long.numberOfTrailingZeros(m)));
+                }
+            }
+        }
+
+        @Override
+        PrimitiveIterator.OfInt iterator(int base, char from) {
+            return new PrimitiveIterator.OfInt() {
+                int w = from >>> 6;
+                long m = bits[w] & (-1L << (from & 63));
+
+                @Override
+                public boolean hasNext() {
+                    while (m == 0 && w < BITMAP_WORDS - 1) m = bits[++w];
+                    return m != 0;
+                }
+
+                @Override
+                public int nextInt() {
+                    if (!hasNext()) throw new NoSuchElementException();
+                    int v = (w << 6) + Long.numberOfTrailingZeros(m);
+                    m &= m - 1;
+                    return base | v;
+                }
+            };
+        }
+
+        @Override
+        Container and(Container o) {
+            if (o instanceof ArrayContainer) return o.and(this);
+            long[] ob = ((BitmapContainer) o).bits;
+            long[] nb = new long[BITMAP_WORDS];
+            for (int w = 0; w < BITMAP_WORDS; w++) nb[w] = bits[w] & ob[w];
+            return fromBits(nb);
+        }
+
+        @Override
+        Container or(Container o) {
+            long[] nb = bits.clone();
+            if (o instanceof ArrayContainer) {
+                ArrayContainer a = (ArrayContainer) o;
+                for (int j = 0; j < a.card; j++) nb[a.vals[j] >>> 6] |= 1L << a.vals[j];
+            } else {
+                long[] ob = ((BitmapContainer) o).bits;
+                for (int w = 0; w < BITMAP_WORDS; w++) nb[w] |= ob[w];
+            }
+            return new BitmapContainer(nb, count(nb));
+        }
+
+        @Override
+        Container andNot(Container o) {
+            long[] nb = bits.clone();
+            if (o instanceof ArrayContainer) {
+                ArrayContainer a = (ArrayContainer) o;
+                for (int j = 0; j < a.card; j++) nb[a.vals[j] >>> 6] &= ~(1L << a.vals[j]);
+            } else {
+                long[] ob = ((BitmapContainer) o).bits;
+                for (int w = 0; w < BITMAP_WORDS; w++) nb[w] &= ~ob[w];
+            }
+            return fromBits(nb);
+        }
+
+        @Override
+        void orInto(long[] into) {
+            for (int w = 0; w < BITMAP_WORDS; w++) into[w] |= bits[w];
+        }
+
+        @Override
+        long[] toBits() {
+            return bits.clone();
+        }
+    }
+}
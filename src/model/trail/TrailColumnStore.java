@@ -0,0 +1,343 @@
+package model.trail;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable column-oriented copy of the trail attributes used by filters.
+ *
+ * Rows are stored in fixed-size chunks; inside a chunk every attribute is its
+ * own primitive array:
+ *  - double[] for length, visitHours, elevationGain, lat, lon
+ *  - byte[] codes for Topic (ordinal) and Difficulty (rank)
+ *  - one bit-plane (long[]) per boolean flag, plus a live-row bit-plane
+ * so a scan reads a few contiguous arrays instead of chasing one Trail
+ * pointer per row, and flag predicates are evaluated 64 rows per AND.
+ * The Trail objects themselves sit in a separate column and are only
+ * touched for rows that pass the scan.
+ *
+ * Like TrailIndexSnapshot, updates return a new store: append copies only the
+ * tail chunk and the chunk directory, withoutRows copies the live bits of the
+ * chunks it touches. Row numbers never change, so they can be used as trail
+ * ordinals; a dead row stays a tombstone for the life of the store. Removal
+ * never frees memory: the store only grows with every add.
+ */
+public final class TrailColumnStore {
+
+    // ─────── Flag bit-planes ───────
+    public static final int PET = 0;
+    public static final int CAMPING = 1;
+    public static final int BIRD = 2;
+    public static final int WILDLIFE = 3;
+    public static final int ICY = 4;
+    private static final int FLAGS = 5;
+
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK = 1 << CHUNK_BITS;          // rows per chunk
+    private static final int WORDS = CHUNK >>> 6;              // longs per bit-plane
+
+    private static final Topic[] TOPICS = Topic.values();
+    private static final Difficulty[] DIFFICULTIES = new Difficulty[Difficulty.values().length];
+    static {
+        for (Difficulty d : Difficulty.values()) DIFFICULTIES[d.rank()] = d;
+    }
+
+    public static final TrailColumnStore EMPTY = new TrailColumnStore(new Chunk[0], 0, 0);
+
+    private static final class Chunk {
+        final double[] length, visitHours, elevation, lat, lon;
+        final byte[] topic, difficulty;
+        final long[][] flags;
+        final long[] live;
+        final Trail[] trails;
+
+        Chunk() {
+            length = new double[CHUNK];
+            visitHours = new double[CHUNK];
+            elevation = new double[CHUNK];
+            lat = new double[CHUNK];
+            lon = new double[CHUNK];
+            topic = new byte[CHUNK];
+            difficulty = new byte[CHUNK];
+            flags = new long[FLAGS][WORDS];
+            live = new long[WORDS];
+            trails = new Trail[CHUNK];
+        }
+
+        // full copy, used before appending into a chunk another store can see
+        Chunk(Chunk c) {
+            length = c.length.clone();
+            visitHours = c.visitHours.clone();
+            elevation = c.elevation.clone();
+            lat = c.lat.clone();
+            lon = c.lon.clone();
+            topic = c.topic.clone();
+            difficulty = c.difficulty.clone();
+            flags = new long[FLAGS][];
+            for (int f = 0; f < FLAGS; f++) flags[f] = c.flags[f].clone();
+            live = c.live.clone();
+            trails = c.trails.clone();
+        }
+
+        // shares every column, replaces only the live bits and the Trail column
+        Chunk(Chunk c, long[] live, Trail[] trails) {
+            length = c.length;
+            visitHours = c.visitHours;
+            elevation = c.elevation;
+            lat = c.lat;
+            lon = c.lon;
+            topic = c.topic;
+            difficulty = c.difficulty;
+            flags = c.flags;
+            this.live = live;
+            this.trails = trails;
+        }
+
+        void set(int i, Trail t) {
+            length[i] = t.getLength();
+            visitHours[i] = t.getVisitHours();
+            elevation[i] = t.getElevationGain();
+            lat[i] = t.getLat();
+            lon[i] = t.getLon();
+            topic[i] = (byte) t.getTopic().ordinal();
+            difficulty[i] = (byte) t.getDifficulty().rank();
+            long bit = 1L << i;                 // shift uses the low 6 bits of i
+            int w = i >>> 6;
+            if (t.isPetFriendly()) flags[PET][w] |= bit;
+            if (t.isCampingAllowed()) flags[CAMPING][w] |= bit;
+            if (t.isBirdSpotted()) flags[BIRD][w] |= bit;
+            if (t.isWildAnimalPossible()) flags[WILDLIFE][w] |= bit;
+            if (t.isIcyTrail()) flags[ICY][w] |= bit;
+            live[w] |= bit;
+            trails[i] = t;
+        }
+    }
+
+    private final Chunk[] chunks;
+    private final int rows;        // rows ever appended (live or not)
+    private final int liveRows;
+
+    private TrailColumnStore(Chunk[] chunks, int rows, int liveRows) {
+        this.chunks = chunks;
+        this.rows = rows;
+        this.liveRows = liveRows;
+    }
+
+    // ─────── Updates (return a new store) ───────
+    /** New store with t appended as row rows() */
+    public TrailColumnStore append(Trail t) {
+        return appendAll(List.of(t));
+    }
+
+    /** New store with the trails appended in order; copies the tail chunk at most once */
+    public TrailColumnStore appendAll(Collection<? extends Trail> trails) {
+        if (trails.isEmpty()) return this;
+
+        int newRows = rows + trails.size();
+        int nChunks = (newRows + CHUNK - 1) >>> CHUNK_BITS;
+        Chunk[] next = Arrays.copyOf(chunks, nChunks);
+
+        int row = rows;
+        Chunk c = null;
+        for (Trail t : trails) {
+            int ci = row >>> CHUNK_BITS;
+            int i = row & (CHUNK - 1);
+            if (c == null || i == 0) {
+                // a partially filled tail is shared with this store: copy before writing
+                c = (ci < chunks.length) ? new Chunk(chunks[ci]) : new Chunk();
+                next[ci] = c;
+            }
+            c.set(i, t);
+            row++;
+        }
+        return new TrailColumnStore(next, newRows, liveRows + trails.size());
+    }
+
+    /** New store with row marked dead (this store if it already is) */
+    public TrailColumnStore withoutRow(int row) {
+        return withoutRows(TrailBitmap.of(row));
+    }
+
+    /** New store with every row of the batch marked dead; copies each touched chunk's live bits once */
+    public TrailColumnStore withoutRows(TrailBitmap dead) {
+        Chunk[] next = null;
+        int cleared = 0;
+        for (PrimitiveIterator.OfInt it = dead.iterator(); it.hasNext(); ) {
+            int row = it.nextInt();
+            if (!isLive(row)) continue;
+            int ci = row >>> CHUNK_BITS;
+            if (next == null) next = chunks.clone();
+            if (next[ci] == chunks[ci]) next[ci] = new Chunk(chunks[ci], chunks[ci].live.clone(), chunks[ci].trails);
+            next[ci].live[(row & (CHUNK - 1)) >>> 6] &= ~(1L << row);
+            cleared++;
+        }
+        return cleared == 0 ? this : new TrailColumnStore(next, rows, liveRows - cleared);
+    }
+
+    /**
+     * New store whose Trail column no longer references dead rows. This does
+     * not make them collectable (TrailRegistry keeps every interned trail),
+     * and the numeric columns stay because row numbers never change.
+     */
+    public TrailColumnStore purge(TrailBitmap dead) {
+        Chunk[] next = null;
+        for (PrimitiveIterator.OfInt it = dead.iterator(); it.hasNext(); ) {
+            int row = it.nextInt();
+            if (row < 0 || row >= rows || isLive(row)) continue;
+            int ci = row >>> CHUNK_BITS;
+            if (next == null) next = chunks.clone();
+            if (next[ci] == chunks[ci]) next[ci] = new Chunk(chunks[ci], chunks[ci].live, chunks[ci].trails.clone());
+            next[ci].trails[row & (CHUNK - 1)] = null;
+        }
+        return next == null ? this : new TrailColumnStore(next, rows, liveRows);
+    }
+
+    // ─────── Row access ───────
+    public int rows() {
+        return rows;
+    }
+
+    public int liveRows() {
+        return liveRows;
+    }
+
+    public boolean isLive(int row) {
+        if (row < 0 || row >= rows) return false;
+        return (chunks[row >>> CHUNK_BITS].live[(row & (CHUNK - 1)) >>> 6] & (1L << row)) != 0;
+    }
+
+    private Chunk chunk(int row) {
+        if (row < 0 || row >= rows) throw new IndexOutOfBoundsException("Row: " + row);
+        return chunks[row >>> CHUNK_BITS];
+    }
+
+    public double length(int row) { return chunk(row).length[row & (CHUNK - 1)]; }
+    public double visitHours(int row) { return chunk(row).visitHours[row & (CHUNK - 1)]; }
+    public double elevationGain(int row) { return chunk(row).elevation[row & (CHUNK - 1)]; }
+    public double lat(int row) { return chunk(row).lat[row & (CHUNK - 1)]; }
+    public double lon(int row) { return chunk(row).lon[row & (CHUNK - 1)]; }
+    public Topic topic(int row) { return TOPICS[chunk(row).topic[row & (CHUNK - 1)]]; }
+    public Difficulty difficulty(int row) { return DIFFICULTIES[chunk(row).difficulty[row & (CHUNK - 1)]]; }
+
+    public boolean flag(int row, int flag) {
+        int i = row & (CHUNK - 1);
+        return (chunk(row).flags[flag][i >>> 6] & (1L << i)) != 0;
+    }
+
+    /** Materialize the Trail stored at row */
+    public Trail trail(int row) {
+        return chunk(row).trails[row & (CHUNK - 1)];
+    }
+
+    // ─────── Scan ───────
+    /** Live rows matching q, in row order, materialized as Trails */
+    public TrailList<Trail> select(Query q) {
+        TrailList<Trail> out = new TrailList<>();
+        scan(q, row -> out.add(trail(row)));
+        return out;
+    }
+
+    /** Live rows matching q, as ordinals */
+    public TrailBitmap selectRows(Query q) {
+        TrailBitmap.Builder out = new TrailBitmap.Builder();
+        scan(q, out::add);
+        return out.build();
+    }
+
+    private void scan(Query q, IntConsumer sink) {
+        int nChunks = (rows + CHUNK - 1) >>> CHUNK_BITS;
+
+        for (int ci = 0; ci < nChunks; ci++) {
+            Chunk c = chunks[ci];
+            int base = ci << CHUNK_BITS;
+            for (int w = 0; w < WORDS; w++) {
+                // flags first: 64 rows per AND, numeric columns only for survivors
+                long m = c.live[w];
+                for (int f = 0; f < FLAGS && m != 0; f++) {
+                    if ((q.mustSet & (1 << f)) != 0) m &= c.flags[f][w];
+                    else if ((q.mustClear & (1 << f)) != 0) m &= ~c.flags[f][w];
+                }
+                while (m != 0) {
+                    int i = (w << 6) + Long.numberOfTrailingZeros(m);
+                    m &= m - 1;
+                    if (q.matches(c, i)) sink.accept(base + i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Scan criteria. Every setter narrows the result; anything left unset is
+     * not checked. Flag arguments follow the repo's tri-state convention:
+     * null = don't care.
+     */
+    public static final class Query {
+        private int mustSet, mustClear;
+        private int topic = -1;
+        private int diffLo = 0, diffHi = Integer.MAX_VALUE;
+        private double lenTarget = Double.NaN, lenTolerance;
+        private double maxLength = Double.POSITIVE_INFINITY;
+        private double maxVisitHours = Double.POSITIVE_INFINITY;
+        private double maxElevation = Double.POSITIVE_INFINITY;
+
+        public Query flag(int flag, Boolean value) {
+            if (value == null) return this;
+            if (value) mustSet |= 1 << flag;
+            else mustClear |= 1 << flag;
+            return this;
+        }
+
+        public Query topic(Topic t) {
+            if (t != null) topic = t.ordinal();
+            return this;
+        }
+
+        public Query difficulty(Difficulty d) {
+            return difficultyWithin(d, 0);
+        }
+
+        /** |rank - d.rank| &lt;= tolerance */
+        public Query difficultyWithin(Difficulty d, int tolerance) {
+            if (d != null) {
+                diffLo = d.rank() - tolerance;
+                diffHi = d.rank() + tolerance;
+            }
+            return this;
+        }
+
+        /** |length - target| &lt;= tolerance */
+        public Query lengthNear(Double target, double tolerance) {
+            if (target != null) {
+                lenTarget = target;
+                lenTolerance = tolerance;
+            }
+            return this;
+        }
+
+        public Query maxLength(Double max) {
+            if (max != null) maxLength = max;
+            return this;
+        }
+
+        public Query maxVisitHours(Double max) {
+            if (max != null) maxVisitHours = max;
+            return this;
+        }
+
+        public Query maxElevationGain(Double max) {
+            if (max != null) maxElevation = max;
+            return this;
+        }
+
+        boolean matches(Chunk c, int i) {
+            if (topic >= 0 && c.topic[i] != topic) return false;
+            int d = c.difficulty[i];
+            if (d < diffLo || d > diffHi) return false;
+            double len = c.length[i];
+            if (len > maxLength) return false;
+            if (lenTarget == lenTarget && Math.abs(len - lenTarget) > lenTolerance) return false;  // NaN = unset
+            if (c.visitHours[i] > maxVisitHours) return false;
+            return !(c.elevation[i] > maxElevation);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package model.trail;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+
+/**
+ * Thread-safe TrailMapInterface using lock striping.
+ *
+ * Keys are spread over a fixed number of stripes; each stripe is a
+ * TrailOpenHashMap guarded by its own read/write lock. Readers of the same
+ * stripe run in parallel, and writers only block the one stripe they touch.
+ *
+ * keySet(), values(), toList() and forEachEntry() are weakly consistent:
+ * each stripe is read under its lock, but the map as a whole may change
+ * between stripes. keySet() / values() return snapshots, not live views.
+ */
+public class TrailConcurrentHashMap<K, V> implements TrailMapInterface<K, V> {
+
+    private static final int DEFAULT_STRIPES = 16;   // power of two
+
+    private final TrailOpenHashMap<K, V>[] stripes;
+    private final ReadWriteLock[] locks;
+    private final AtomicInteger size = new AtomicInteger();
+
+    public TrailConcurrentHashMap() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /** @param concurrency expected number of concurrent writers (rounded up to a power of two) */
+    @SuppressWarnings("unchecked")
+    public TrailConcurrentHashMap(int concurrency) {
+        int n = 1;
+        while (n < Math.max(1, concurrency)) n <<= 1;
+        stripes = (TrailOpenHashMap<K, V>[]) new TrailOpenHashMap<?, ?>[n];
+        locks = new ReadWriteLock[n];
+        for (int i = 0; i < n; i++) {
+            stripes[i] = new TrailOpenHashMap<>();
+            locks[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    /** ---------- Stripe selection ---------- */
+    // use the high bits so the stripe choice is independent of the in-stripe slot
+    private int stripeOf(Object key) {
+        int h = (key == null) ? 0 : key.hashCode();
+        h *= 0x9E3779B9;
+        return (h >>> 16) & (stripes.length - 1);
+    }
+
+    /** ---------- ADT: put ---------- */
+    @Override
+    public void put(K key, V value) {
+        int s = stripeOf(key);
+        locks[s].writeLock().lock();
+        try {
+            int before = stripes[s].size();
+            stripes[s].put(key, value);
+            size.addAndGet(stripes[s].size() - before);
+        } finally {
+            locks[s].writeLock().unlock();
+        }
+    }
+
+    /** Atomically insert value unless key is present; returns the value now stored */
+    public V computeIfAbsent(K key, V defaultValue) {
+        int s = stripeOf(key);
+        locks[s].writeLock().lock();
+        try {
+            V existing = stripes[s].get(key);
+            if (existing != null) return existing;
+            int before = stripes[s].size();
+            stripes[s].put(key, defaultValue);
+            size.addAndGet(stripes[s].size() - before);
+            return defaultValue;
+        } finally {
+            locks[s].writeLock().unlock();
+        }
+    }
+
+    /** ---------- ADT: get ---------- */
+    @Override
+    public V get(K key) {
+        int s = stripeOf(key);
+        locks[s].readLock().lock();
+        try {
+            return stripes[s].get(key);
+        } finally {
+            locks[s].readLock().unlock();
+        }
+    }
+
+    public V getOrDefault(K key, V defaultValue) {
+        V v = get(key);
+        return (v != null) ? v : defaultValue;
+    }
+
+    /** ---------- containsKey ---------- */
+    @Override
+    public boolean containsKey(K key) {
+        int s = stripeOf(key);
+        locks[s].readLock().lock();
+        try {
+            return stripes[s].containsKey(key);
+        } finally {
+            locks[s].readLock().unlock();
+        }
+    }
+
+    /** ---------- remove(key) ---------- */
+    @Override
+    public boolean removeByKey(K key) {
+        int s = stripeOf(key);
+        locks[s].writeLock().lock();
+        try {
+            boolean removed = stripes[s].removeByKey(key);
+            if (removed) size.decrementAndGet();
+            return removed;
+        } finally {
+            locks[s].writeLock().unlock();
+        }
+    }
+
+    /** ---------- remove(value): first match, stripe by stripe ---------- */
+    @Override
+    public boolean remove(V item) {
+        for (int s = 0; s < stripes.length; s++) {
+            locks[s].writeLock().lock();
+            try {
+                if (stripes[s].remove(item)) {
+                    size.decrementAndGet();
+                    return true;
+                }
+            } finally {
+                locks[s].writeLock().unlock();
+            }
+        }
+        return false;
+    }
+
+    /** ---------- remove(String key) special-case ---------- */
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean remove(String key) {
+        try {
+            return removeByKey((K) key);
+        } catch (ClassCastException e) {
+            return false;
+        }
+    }
+
+    /** ---------- ADT: forEachEntry (weakly consistent) ---------- */
+    @Override
+    public void forEachEntry(BiConsumer<? super K, ? super V> action) {
+        for (int s = 0; s < stripes.length; s++) {
+            locks[s].readLock().lock();
+            try {
+                stripes[s].forEachEntry(action);
+            } finally {
+                locks[s].readLock().unlock();
+            }
+        }
+    }
+
+    /** ---------- ADT: keySet (snapshot) ---------- */
+    @Override
+    public Set<K> keySet() {
+        Set<K> out = new HashSet<>();
+        forEachEntry((k, v) -> out.add(k));
+        return out;
+    }
+
+    /** ---------- ADT: values (snapshot) ---------- */
+    @Override
+    public Collection<V> values() {
+        return toList();
+    }
+
+    @Override
+    public List<V> toList() {
+        List<V> out = new ArrayList<>(size());
+        forEachEntry((k, v) -> out.add(v));
+        return out;
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public void clear() {
+        for (int s = 0; s < stripes.length; s++) {
+            locks[s].writeLock().lock();
+            try {
+                size.addAndGet(-stripes[s].size());
+                stripes[s].clear();
+            } finally {
+                locks[s].writeLock().unlock();
+            }
+        }
+    }
+
+    /** ---------- unsupported add(V) ---------- */
+    @Override
+    public void add(V item) {
+        throw new UnsupportedOperationException("Use put(key, value) instead.");
+    }
+}
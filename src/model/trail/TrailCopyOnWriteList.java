@@ -0,0 +1,162 @@
+package model.trail;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Thread-safe TrailListInterface using copy-on-write.
+ *
+ * Every mutation copies the backing array under a lock and publishes the new
+ * array through a volatile field. Readers never lock: get / contains /
+ * iteration / view() all work on the array that was current when they
+ * started, so a background writer can never tear a reader's pass.
+ * Best for data that is read far more often than written (e.g. live groups).
+ */
+public class TrailCopyOnWriteList<T> implements TrailListInterface<T> {
+
+    private static final Object[] EMPTY = new Object[0];
+
+    private final Object lock = new Object();
+    private volatile Object[] array = EMPTY;
+
+    public TrailCopyOnWriteList() { }
+
+    public TrailCopyOnWriteList(Collection<? extends T> src) {
+        Object[] a = src.toArray();
+        array = Arrays.copyOf(a, a.length, Object[].class);
+    }
+
+    /** ---------- add(newEntry) ---------- */
+    @Override
+    public void add(T newEntry) {
+        synchronized (lock) {
+            Object[] cur = array;
+            Object[] next = Arrays.copyOf(cur, cur.length + 1);
+            next[cur.length] = newEntry;
+            array = next;
+        }
+    }
+
+    /** ---------- addAll: one copy for the whole batch ---------- */
+    public void addAll(Collection<? extends T> src) {
+        Object[] extra = src.toArray();
+        if (extra.length == 0) return;
+        synchronized (lock) {
+            Object[] cur = array;
+            Object[] next = Arrays.copyOf(cur, cur.length + extra.length);
+            System.arraycopy(extra, 0, next, cur.length, extra.length);
+            array = next;
+        }
+    }
+
+    /** ---------- remove(entry) ---------- */
+    @Override
+    public boolean remove(T entry) {
+        if (entry == null) return false;
+        synchronized (lock) {
+            Object[] cur = array;
+            for (int i = 0; i < cur.length; i++) {
+                if (entry.equals(cur[i])) {
+                    Object[] next = new Object[cur.length - 1];
+                    System.arraycopy(cur, 0, next, 0, i);
+                    System.arraycopy(cur, i + 1, next, i, cur.length - i - 1);
+                    array = next;
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /** ---------- removeIf: one copy for the whole batch ---------- */
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean removeIf(Predicate<? super T> filter) {
+        synchronized (lock) {
+            Object[] cur = array;
+            Object[] next = new Object[cur.length];
+            int w = 0;
+            for (Object x : cur) {
+                if (!filter.test((T) x)) next[w++] = x;
+            }
+            if (w == cur.length) return false;
+            array = Arrays.copyOf(next, w);
+            return true;
+        }
+    }
+
+    /** ---------- get(index): lock-free ---------- */
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        Object[] a = array;
+        if (index < 0 || index >= a.length) return null;
+        return (T) a[index];
+    }
+
+    @Override
+    public boolean contains(T entry) {
+        for (Object x : array) {
+            if (Objects.equals(x, entry)) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public int size() {
+        return array.length;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return array.length == 0;
+    }
+
+    @Override
+    public void clear() {
+        synchronized (lock) {
+            array = EMPTY;
+        }
+    }
+
+    /** ---------- sort: sort a private copy, then publish ---------- */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void sort(Comparator<T> cmp) {
+        synchronized (lock) {
+            Object[] next = array.clone();
+            Arrays.sort(next, (a, b) -> cmp.compare((T) a, (T) b));
+            array = next;
+        }
+    }
+
+    /** ---------- toList(): independent copy ---------- */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<T> toList() {
+        return new ArrayList<>((List<T>) Arrays.asList(array));
+    }
+
+    /**
+     * Read-only snapshot of the current contents. Unlike TrailList.view(),
+     * later writes are NOT visible (the snapshot is what makes it safe).
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<T> view() {
+        return Collections.unmodifiableList((List<T>) Arrays.asList(array));
+    }
+
+    /** Iterates the snapshot taken when iteration starts */
+    @Override
+    public Iterator<T> iterator() {
+        return view().iterator();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(Consumer<? super T> action) {
+        for (Object x : array) action.accept((T) x);
+    }
+}
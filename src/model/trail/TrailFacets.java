@@ -0,0 +1,96 @@
+package model.trail;
+
+import java.util.*;
+
+/**
+ * Facet counts for one TrailQuery, from TrailIndexSnapshot.facets().
+ *
+ * Every count is over the trails matching the whole query, so a UI can
+ * show "(n)" next to each filter value without running one query per
+ * value. Difficulty, topic and flag counts are bitmap intersections with
+ * the posting lists (AND + popcount, no trails touched); the three
+ * histograms come from a single pass over the matching rows' columns.
+ *
+ * Histogram buckets are equal-width over the whole catalog's range of that
+ * attribute, so bucket edges stay put while the filters change.
+ */
+public final class TrailFacets {
+
+    /** Flag facets, by TrailIndex feature key */
+    public static final List<String> FLAGS = List.of("pet_friendly", "camping", "wildlife", "bird", "icy");
+
+    private final int total;
+    private final Map<Difficulty, Integer> byDifficulty;
+    private final Map<Topic, Integer> byTopic;
+    private final Map<String, Integer> byFlag;
+    private final Histogram length, visitHours, elevationGain;
+
+    TrailFacets(int total, Map<Difficulty, Integer> byDifficulty, Map<Topic, Integer> byTopic,
+                Map<String, Integer> byFlag, Histogram length, Histogram visitHours, Histogram elevationGain) {
+        this.total = total;
+        this.byDifficulty = Collections.unmodifiableMap(byDifficulty);
+        this.byTopic = Collections.unmodifiableMap(byTopic);
+        this.byFlag = Collections.unmodifiableMap(byFlag);
+        this.length = length;
+        this.visitHours = visitHours;
+        this.elevationGain = elevationGain;
+    }
+
+    /** Trails matching the query */
+    public int total() { return total; }
+
+    /** Matches per difficulty (every Difficulty present, possibly 0) */
+    public Map<Difficulty, Integer> byDifficulty() { return byDifficulty; }
+
+    /** Matches per topic (every Topic present, possibly 0) */
+    public Map<Topic, Integer> byTopic() { return byTopic; }
+
+    /** Matches with each flag set, keyed as in FLAGS; total() - count = matches without it */
+    public Map<String, Integer> byFlag() { return byFlag; }
+
+    public Histogram length() { return length; }
+    public Histogram visitHours() { return visitHours; }
+    public Histogram elevationGain() { return elevationGain; }
+
+    @Override
+    public String toString() {
+        return "total=" + total + " difficulty=" + byDifficulty + " topic=" + byTopic + " flags=" + byFlag
+                + "\n  length " + length + "\n  visitHours " + visitHours + "\n  elevationGain " + elevationGain;
+    }
+
+    /**
+     * Equal-width buckets: bucket i covers [lowerBound(i), upperBound(i));
+     * the last bucket also includes upperBound.
+     */
+    public static final class Histogram {
+        private final double min, width;
+        private final int[] counts;
+
+        /** Empty buckets over [min, max]; min == max gives one bucket */
+        Histogram(double min, double max, int buckets) {
+            this.min = min;
+            this.counts = new int[(max > min) ? Math.max(1, buckets) : 1];
+            this.width = (max > min) ? (max - min) / counts.length : 0;
+        }
+
+        void add(double v) {
+            int i = (width == 0) ? 0 : (int) ((v - min) / width);
+            counts[Math.max(0, Math.min(counts.length - 1, i))]++;
+        }
+
+        public int buckets() { return counts.length; }
+        public int count(int bucket) { return counts[bucket]; }
+        public double lowerBound(int bucket) { return min + bucket * width; }
+        public double upperBound(int bucket) { return min + (bucket + 1) * width; }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < counts.length; i++) {
+                if (i > 0) sb.append(' ');
+                sb.append(String.format("[%.1f,%.1f)=%d", lowerBound(i), upperBound(i), counts[i]));
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package model.trail;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Immutable spatial index: a fixed lat/lon grid of CELL_DEG-degree cells.
+ *
+ * Each occupied cell maps to the TrailBitmap of trail ordinals inside it
+ * (TrailPersistentHashMap, so updates share structure like the rest of the
+ * snapshot). A query first turns the search area into a cell rectangle and
+ * only opens those cells, then checks the exact distance / box for the rows
+ * found there. Coordinates are read from the snapshot's TrailColumnStore,
+ * so the index itself stores nothing but cell → ordinals, and rows the
+ * store marks dead are skipped until compaction purges them.
+ *
+ * Cost is O(cells in the area + rows in those cells), independent of the
+ * catalog size; when the area spans more cells than are occupied (e.g. a
+ * continent-wide radius), the occupied cells are walked instead.
+ */
+public final class TrailGeoIndex {
+
+    public static final double EARTH_RADIUS_MILES = 3958.8;
+
+    private static final double CELL_DEG = 0.25;                   // ~17 miles of latitude
+    private static final int LAT_CELLS = (int) (180 / CELL_DEG);
+    private static final int LON_CELLS = (int) (360 / CELL_DEG);
+    private static final double HALF_CIRCUMFERENCE = Math.PI * EARTH_RADIUS_MILES;
+
+    public static final TrailGeoIndex EMPTY = new TrailGeoIndex(TrailPersistentHashMap.empty(), 0);
+
+    private final TrailPersistentHashMap<Integer, TrailBitmap> cells;
+    private final int rows;
+
+    private TrailGeoIndex(TrailPersistentHashMap<Integer, TrailBitmap> cells, int rows) {
+        this.cells = cells;
+        this.rows = rows;
+    }
+
+    // ─────── Cells ───────
+    private static int latCell(double lat) {
+        return Math.min(LAT_CELLS - 1, Math.max(0, (int) Math.floor((lat + 90) / CELL_DEG)));
+    }
+
+    private static int lonCell(double lon) {
+        return Math.floorMod((int) Math.floor((lon + 180) / CELL_DEG), LON_CELLS);
+    }
+
+    private static int cellKey(int latCell, int lonCell) {
+        return latCell * LON_CELLS + lonCell;
+    }
+
+    private static int cellOf(double lat, double lon) {
+        return cellKey(latCell(lat), lonCell(lon));
+    }
+
+    // ─────── Updates (return a new index) ───────
+    /** Add a batch: (lat[i], lon[i]) belongs to ordinal firstRow + i */
+    public TrailGeoIndex withAll(double[] lat, double[] lon, int firstRow) {
+        if (lat.length == 0) return this;
+        TrailOpenHashMap<Integer, TrailBitmap.Builder> added = new TrailOpenHashMap<>();
+        for (int i = 0; i < lat.length; i++) {
+            added.computeIfAbsent(cellOf(lat[i], lon[i]), new TrailBitmap.Builder()).add(firstRow + i);
+        }
+        TrailPersistentHashMap<Integer, TrailBitmap> next = cells;
+        for (Integer c : added.keySet()) {
+            next = next.with(c, next.getOrDefault(c, TrailBitmap.EMPTY).or(added.get(c).build()));
+        }
+        return new TrailGeoIndex(next, rows + lat.length);
+    }
+
+    /** Purge a batch of ordinals indexed at (latOf(row), lonOf(row)); empty cells are dropped */
+    public TrailGeoIndex withoutRows(TrailBitmap removed, IntToDoubleFunction latOf, IntToDoubleFunction lonOf) {
+        if (removed.isEmpty()) return this;
+        TrailOpenHashMap<Integer, TrailBitmap.Builder> byCell = new TrailOpenHashMap<>();
+        removed.forEach(row -> byCell.computeIfAbsent(
+                cellOf(latOf.applyAsDouble(row), lonOf.applyAsDouble(row)), new TrailBitmap.Builder()).add(row));
+
+        TrailPersistentHashMap<Integer, TrailBitmap> next = cells;
+        int n = rows;
+        for (Integer c : byCell.keySet()) {
+            TrailBitmap b = next.get(c);
+            if (b == null) continue;
+            TrailBitmap nb = b.andNot(byCell.get(c).build());
+            n -= b.cardinality() - nb.cardinality();
+            next = nb.isEmpty() ? next.without(c) : next.with(c, nb);
+        }
+        return new TrailGeoIndex(next, n);
+    }
+
+    // ─────── Queries (coordinates come from columns) ───────
+    /** Ordinals within miles of (lat, lon), by great-circle distance */
+    TrailBitmap withinRadius(TrailColumnStore columns, double lat, double lon, double miles) {
+        Hits found = new Hits();
+        collect(columns, lat, lon, miles, found);
+        return found.toBitmap();
+    }
+
+    /**
+     * Ordinals inside the box. minLon &gt; maxLon means the box crosses the
+     * antimeridian.
+     */
+    TrailBitmap withinBox(TrailColumnStore columns, double minLat, double minLon, double maxLat, double maxLon) {
+        Hits found = new Hits();
+        boolean wraps = minLon > maxLon;
+        int lonFrom = lonCell(minLon);
+        int lonSpan;
+        if (wraps) {
+            lonSpan = Math.floorMod(lonCell(maxLon) - lonFrom, LON_CELLS) + 1;
+            if (lonSpan == 1) lonSpan = LON_CELLS;
+        } else {
+            // unwrapped cell numbers: maxLon = 180 must not fold back onto cell 0
+            int lo = (int) Math.floor((minLon + 180) / CELL_DEG), hi = (int) Math.floor((maxLon + 180) / CELL_DEG);
+            lonSpan = Math.min(LON_CELLS, hi - lo + 1);
+        }
+
+        forEachCell(latCell(minLat), latCell(maxLat), lonFrom, lonSpan, b -> b.forEach(row -> {
+            if (!columns.isLive(row)) return;
+            double la = columns.lat(row), lo = columns.lon(row);
+            boolean inLon = wraps ? (lo >= minLon || lo <= maxLon) : (lo >= minLon && lo <= maxLon);
+            if (la >= minLat && la <= maxLat && inLon) found.accept(row, 0);
+        }));
+        return found.toBitmap();
+    }
+
+    /**
+     * Ordinals of the k trails closest to (lat, lon), nearest first. The
+     * radius doubles until it holds k trails: every trail outside a radius
+     * is farther than every trail inside it, so those k are exact.
+     */
+    int[] nearest(TrailColumnStore columns, double lat, double lon, int k) {
+        if (k <= 0 || columns.liveRows() == 0) return new int[0];
+        return nearestAfter(columns, lat, lon, -1, -1, Math.min(k, columns.liveRows()), row -> true);
+    }
+
+    /**
+     * Like nearest, but only rows accepted by accept and strictly after the
+     * cursor (afterMiles, afterRow) in (distance, ordinal) order: the next
+     * page of a distance-sorted listing. The search starts at the cursor's
+     * distance, so a page costs the cells out to that ring, not the rows
+     * already returned by earlier pages' ranking.
+     */
+    int[] nearestAfter(TrailColumnStore columns, double lat, double lon,
+                       double afterMiles, int afterRow, int k, IntPredicate accept) {
+        if (k <= 0) return new int[0];
+        Hits found = new Hits();
+        RowDistance sink = (row, d) -> {
+            if ((d > afterMiles || d == afterMiles && row > afterRow) && accept.test(row)) found.accept(row, d);
+        };
+        for (double miles = Math.max(0, afterMiles) + 25; ; miles *= 2) {
+            found.size = 0;
+            collect(columns, lat, lon, miles, sink);
+            if (found.size >= k || miles >= HALF_CIRCUMFERENCE) break;
+        }
+
+        Integer[] order = new Integer[found.size];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, Comparator.<Integer>comparingDouble(i -> found.miles[i]).thenComparingInt(i -> found.rows[i]));
+
+        int[] out = new int[Math.min(k, order.length)];
+        for (int i = 0; i < out.length; i++) out[i] = found.rows[order[i]];
+        return out;
+    }
+
+    private interface RowDistance {
+        void accept(int row, double miles);
+    }
+
+    // bounding box of the spherical cap, then the exact haversine check
+    private void collect(TrailColumnStore columns, double lat, double lon, double miles, RowDistance sink) {
+        double delta = miles / EARTH_RADIUS_MILES;                  // angular radius
+        double lat0 = Math.toRadians(lat);
+        double minLat = Math.toDegrees(lat0 - delta);
+        double maxLat = Math.toDegrees(lat0 + delta);
+
+        int lonFrom, lonSpan;
+        double cos = Math.cos(lat0);
+        if (minLat <= -90 || maxLat >= 90 || Math.sin(delta) >= cos) {
+            lonFrom = 0;                                            // cap reaches a pole
+            lonSpan = LON_CELLS;
+        } else {
+            double dLon = Math.toDegrees(Math.asin(Math.sin(delta) / cos));
+            lonFrom = lonCell(lon - dLon);
+            lonSpan = Math.min(LON_CELLS, Math.floorMod(lonCell(lon + dLon) - lonFrom, LON_CELLS) + 1);
+        }
+
+        forEachCell(latCell(minLat), latCell(maxLat), lonFrom, lonSpan, b -> b.forEach(row -> {
+            if (!columns.isLive(row)) return;                       // removed, not yet compacted
+            double d = distanceMiles(lat, lon, columns.lat(row), columns.lon(row));
+            if (d <= miles) sink.accept(row, d);
+        }));
+    }
+
+    private void forEachCell(int latFrom, int latTo, int lonFrom, int lonSpan,
+                             Consumer<TrailBitmap> action) {
+        long area = (long) (latTo - latFrom + 1) * lonSpan;
+        if (area > cells.size()) {
+            // fewer occupied cells than cells in the area: test each occupied one
+            cells.forEachEntry((key, b) -> {
+                int la = key / LON_CELLS, lo = key % LON_CELLS;
+                if (la >= latFrom && la <= latTo && Math.floorMod(lo - lonFrom, LON_CELLS) < lonSpan) action.accept(b);
+            });
+            return;
+        }
+        for (int la = latFrom; la <= latTo; la++) {
+            for (int i = 0; i < lonSpan; i++) {
+                TrailBitmap b = cells.get(cellKey(la, (lonFrom + i) % LON_CELLS));
+                if (b != null) action.accept(b);
+            }
+        }
+    }
+
+    /** Haversine distance between two GPS points (in miles). */
+    public static double distanceMiles(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+
+        double a =
+                Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                        + Math.cos(Math.toRadians(lat1))
+                        * Math.cos(Math.toRadians(lat2))
+                        * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+
+        return EARTH_RADIUS_MILES * (2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a)));
+    }
+
+    public int size() {
+        return rows;
+    }
+
+    /** Number of occupied cells */
+    public int cellCount() {
+        return cells.size();
+    }
+
+    // growable (row, distance) buffer; cells are visited out of ordinal order
+    private static final class Hits implements RowDistance {
+        int[] rows = new int[16];
+        double[] miles = new double[16];
+        int size;
+
+        @Override
+        public void accept(int row, double d) {
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size * 2);
+                miles = Arrays.copyOf(miles, size * 2);
+            }
+            rows[size] = row;
+            miles[size++] = d;
+        }
+
+        TrailBitmap toBitmap() {
+            int[] sorted = Arrays.copyOf(rows, size);
+            Arrays.sort(sorted);
+            TrailBitmap.Builder out = new TrailBitmap.Builder();
+            for (int r : sorted) out.add(r);
+            return out.build();
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package model.trail;
 
 import java.util.*;
+import java.util.function.BiConsumer;
 
 public class TrailHashMap<K, V> implements TrailMapInterface<K, V> {
 
@@ -26,21 +27,25 @@ public class TrailHashMap<K, V> implements TrailMapInterface<K, V> {
     }
 
     /** ---------- Hash Function ---------- */
+    // mask the sign bit: Math.abs(Integer.MIN_VALUE) is still negative
     private int index(K key) {
-        return (key == null ? 0 : Math.abs(key.hashCode())) % table.length;
+        return (key == null ? 0 : key.hashCode() & 0x7fffffff) % table.length;
     }
 
     /** ---------- Resize / Rehash ---------- */
+    // relinks the existing nodes; keys are already unique, so no put()/equals()
     @SuppressWarnings("unchecked")
     private void rehash() {
         Node<K, V>[] old = table;
         table = (Node<K, V>[]) new Node[old.length * 2];
-        size = 0;
 
         for (Node<K, V> head : old) {
             while (head != null) {
-                put(head.key, head.value);
-                head = head.next;
+                Node<K, V> next = head.next;
+                int idx = index(head.key);
+                head.next = table[idx];
+                table[idx] = head;
+                head = next;
             }
         }
     }
@@ -128,30 +133,75 @@ public class TrailHashMap<K, V> implements TrailMapInterface<K, V> {
         return false;
     }
 
-    /** ---------- ADT: keySet ---------- */
+    /** ---------- Live iteration ---------- */
+    // walks the buckets in place; read-only, not fail-fast
+    private abstract class NodeIterator<E> implements Iterator<E> {
+        private int bucket = 0;
+        private Node<K, V> next;
+
+        NodeIterator() { advance(null); }
+
+        private void advance(Node<K, V> cur) {
+            next = (cur == null) ? null : cur.next;
+            while (next == null && bucket < table.length) next = table[bucket++];
+        }
+
+        @Override
+        public boolean hasNext() { return next != null; }
+
+        Node<K, V> nextNode() {
+            if (next == null) throw new NoSuchElementException();
+            Node<K, V> n = next;
+            advance(n);
+            return n;
+        }
+    }
+
+    /** ---------- ADT: keySet (live view) ---------- */
     @Override
     public Set<K> keySet() {
-        Set<K> keys = new HashSet<>();
-        for (Node<K, V> head : table) {
-            while (head != null) {
-                keys.add(head.key);
-                head = head.next;
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<K> iterator() {
+                return new NodeIterator<>() {
+                    @Override public K next() { return nextNode().key; }
+                };
             }
-        }
-        return keys;
+            @Override public int size() { return size; }
+            @SuppressWarnings("unchecked")
+            @Override public boolean contains(Object o) {
+                try {
+                    return containsKey((K) o);
+                } catch (ClassCastException e) {
+                    return false;
+                }
+            }
+        };
     }
 
-    /** ---------- ADT: values ---------- */
+    /** ---------- ADT: values (live view) ---------- */
     @Override
     public Collection<V> values() {
-        List<V> result = new ArrayList<>();
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new NodeIterator<>() {
+                    @Override public V next() { return nextNode().value; }
+                };
+            }
+            @Override public int size() { return size; }
+        };
+    }
+
+    /** ---------- ADT: forEachEntry ---------- */
+    @Override
+    public void forEachEntry(BiConsumer<? super K, ? super V> action) {
         for (Node<K, V> head : table) {
             while (head != null) {
-                result.add(head.value);
+                action.accept(head.key, head.value);
                 head = head.next;
             }
         }
-        return result;
     }
 
     /** ---------- ADT: toList ---------- */
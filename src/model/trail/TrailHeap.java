@@ -2,143 +2,283 @@ package model.trail;
 
 import java.util.*;
 
+/**
+ * Indexed d-ary heap (default arity 4).
+ *
+ * - Each element's slot is tracked in a TrailOpenHashMap, so remove(T),
+ *   updatePriority(T) and decreaseKey(T) are O(log n) instead of an O(n) scan.
+ *   Like any priority queue it is a multiset: adding an element equal to one
+ *   already present stores a second copy (equal copies share one map entry
+ *   and are chained through their slots). remove(T) drops one copy;
+ *   updatePriority(T) and decreaseKey(T) re-position every copy.
+ * - addAll(...) and setComparator(...) rebuild with Floyd heapify in O(n).
+ * - Bounded mode (capacity &gt; 0) keeps only the `capacity` greatest elements
+ *   by the comparator; the top is the smallest of them, i.e. the next to evict.
+ */
 public class TrailHeap<T> implements TrailPriorityQueueInterface<T> {
 
-    private ArrayList<T> heap;
+    /** Heap slot: the element plus its current array position. */
+    private static final class Slot<T> {
+        final T item;
+        int pos;
+        Slot<T> next;      // next copy of an equal element, or null
+        Slot(T item) { this.item = item; }
+    }
+
+    private static final int DEFAULT_ARITY = 4;
+
+    private Slot<T>[] heap;
+    private int size = 0;
+    private final TrailOpenHashMap<T, Slot<T>> slots = new TrailOpenHashMap<>();
     private Comparator<T> comparator;
+    private final int arity;
+    private final int capacity;    // <= 0 means unbounded
 
     public TrailHeap(Comparator<T> cmp) {
+        this(cmp, DEFAULT_ARITY, 0);
+    }
+
+    public TrailHeap(Comparator<T> cmp, int arity) {
+        this(cmp, arity, 0);
+    }
+
+    /**
+     * @param arity    children per node (2 = binary heap)
+     * @param capacity bounded top-K size; &lt;= 0 for an unbounded heap
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public TrailHeap(Comparator<T> cmp, int arity, int capacity) {
+        if (arity < 2) throw new IllegalArgumentException("arity must be >= 2");
         this.comparator = cmp;
-        this.heap = new ArrayList<>();
+        this.arity = arity;
+        this.capacity = capacity;
+        this.heap = (Slot<T>[]) new Slot[capacity > 0 ? capacity : 16];
     }
 
     /** ------------------ Core Heap Helpers ------------------ */
 
-    private int parent(int i) { return (i - 1) / 2; }
-    private int left(int i) { return 2 * i + 1; }
-    private int right(int i) { return 2 * i + 2; }
+    private int parent(int i) { return (i - 1) / arity; }
+    private int firstChild(int i) { return arity * i + 1; }
+
+    private boolean less(Slot<T> a, Slot<T> b) {
+        return comparator.compare(a.item, b.item) < 0;
+    }
 
-    private void swap(int i, int j) {
-        T tmp = heap.get(i);
-        heap.set(i, heap.get(j));
-        heap.set(j, tmp);
+    private void place(Slot<T> s, int i) {
+        heap[i] = s;
+        s.pos = i;
     }
 
-    /** Bubble up (after add) */
+    /** Bubble up: move the hole instead of swapping at every level */
     private void siftUp(int i) {
+        Slot<T> s = heap[i];
         while (i > 0) {
             int p = parent(i);
-            if (comparator.compare(heap.get(i), heap.get(p)) >= 0)
-                break;
-            swap(i, p);
+            if (!less(s, heap[p])) break;
+            place(heap[p], i);
             i = p;
         }
+        place(s, i);
     }
 
-    /** Bubble down (after pop/remove) */
+    /** Bubble down: pick the smallest of up to `arity` children */
     private void siftDown(int i) {
-        int n = heap.size();
-
+        Slot<T> s = heap[i];
         while (true) {
-            int l = left(i), r = right(i);
-            int smallest = i;
+            int c = firstChild(i);
+            if (c >= size) break;
+
+            int end = Math.min(c + arity, size);
+            int best = c;
+            for (int k = c + 1; k < end; k++) {
+                if (less(heap[k], heap[best])) best = k;
+            }
+            if (!less(heap[best], s)) break;
+
+            place(heap[best], i);
+            i = best;
+        }
+        place(s, i);
+    }
+
+    /** Floyd heapify: sift down every internal node, bottom-up, O(n) */
+    private void heapify() {
+        if (size < 2) return;
+        for (int i = parent(size - 1); i >= 0; i--) siftDown(i);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void grow(int min) {
+        if (min <= heap.length) return;
+        Slot<T>[] bigger = (Slot<T>[]) new Slot[Math.max(min, heap.length * 2)];
+        System.arraycopy(heap, 0, bigger, 0, size);
+        heap = bigger;
+    }
+
+    /** Track s under its element; an equal element already present gets s chained behind it */
+    private void link(Slot<T> s) {
+        Slot<T> head = slots.get(s.item);
+        if (head == null) {
+            slots.put(s.item, s);
+        } else {
+            s.next = head.next;
+            head.next = s;
+        }
+    }
 
-            if (l < n && comparator.compare(heap.get(l), heap.get(smallest)) < 0)
-                smallest = l;
+    private void unlink(Slot<T> s) {
+        Slot<T> head = slots.get(s.item);
+        if (head == s) {
+            if (s.next == null) slots.removeByKey(s.item);
+            else slots.put(s.item, s.next);
+            return;
+        }
+        Slot<T> p = head;
+        while (p.next != s) p = p.next;
+        p.next = s.next;
+    }
 
-            if (r < n && comparator.compare(heap.get(r), heap.get(smallest)) < 0)
-                smallest = r;
+    /** Remove the slot at index i and restore heap order */
+    private T removeAt(int i) {
+        Slot<T> target = heap[i];
+        unlink(target);
 
-            if (smallest == i) break;
+        Slot<T> last = heap[--size];
+        heap[size] = null;
 
-            swap(i, smallest);
-            i = smallest;
+        if (i < size) {
+            place(last, i);
+            siftUp(i);
+            siftDown(last.pos);
         }
+        return target.item;
     }
 
     /** ------------------ ADT Methods ------------------ */
 
     @Override
     public void add(T item) {
-        heap.add(item);
-        siftUp(heap.size() - 1);
+        offer(item);
     }
 
-    @Override
-    public T removeTop() {
-        if (heap.isEmpty()) throw new NoSuchElementException();
+    /**
+     * Insert item. Returns false if the heap is bounded, full, and item is not
+     * greater than the current top (i.e. it would not make the top-K).
+     */
+    public boolean offer(T item) {
+        if (capacity > 0 && size >= capacity) {
+            if (comparator.compare(item, heap[0].item) <= 0) return false;
+            removeAt(0);
+        }
 
-        T top = heap.get(0);
-        T last = heap.remove(heap.size() - 1);
+        grow(size + 1);
+        Slot<T> s = new Slot<>(item);
+        link(s);
+        place(s, size++);
+        siftUp(s.pos);
+        return true;
+    }
 
-        if (!heap.isEmpty()) {
-            heap.set(0, last);
-            siftDown(0);
+    /** Bulk insert: append everything, then one O(n) heapify */
+    public void addAll(Collection<? extends T> items) {
+        if (capacity > 0) {
+            for (T x : items) offer(x);
+            return;
+        }
+        grow(size + items.size());
+        for (T x : items) {
+            Slot<T> s = new Slot<>(x);
+            link(s);
+            place(s, size++);
         }
+        heapify();
+    }
 
-        return top;
+    @Override
+    public T removeTop() {
+        if (size == 0) throw new NoSuchElementException();
+        return removeAt(0);
     }
 
     @Override
     public T peekTop() {
-        if (heap.isEmpty()) throw new NoSuchElementException();
-        return heap.get(0);
+        if (size == 0) throw new NoSuchElementException();
+        return heap[0].item;
     }
 
+    /** O(log n): position comes from the slot index, not a linear search. Removes one copy. */
     @Override
     public boolean remove(T item) {
-        int idx = heap.indexOf(item);
-        if (idx == -1) return false;
+        Slot<T> s = slots.get(item);
+        if (s == null) return false;
+        removeAt(s.pos);
+        return true;
+    }
 
-        int lastIdx = heap.size() - 1;
-        T last = heap.remove(lastIdx);
+    public boolean contains(T item) {
+        return slots.containsKey(item);
+    }
 
-        if (idx < heap.size()) {
-            heap.set(idx, last);
-            siftUp(idx);
-            siftDown(idx);
+    /**
+     * Re-position every copy of item after its priority changed in either
+     * direction. Returns false if item is not in the heap.
+     */
+    public boolean updatePriority(T item) {
+        Slot<T> s = slots.get(item);
+        if (s == null) return false;
+        for (; s != null; s = s.next) {
+            siftUp(s.pos);
+            siftDown(s.pos);
         }
+        return true;
+    }
 
+    /** Re-position item after its priority moved towards the top (cheaper: sift up only). */
+    public boolean decreaseKey(T item) {
+        Slot<T> s = slots.get(item);
+        if (s == null) return false;
+        for (; s != null; s = s.next) siftUp(s.pos);
         return true;
     }
 
     @Override
     public void setComparator(Comparator<T> cmp) {
         this.comparator = cmp;
-
-        // Rebuild heap
-        ArrayList<T> old = new ArrayList<>(heap);
-        heap.clear();
-        for (T x : old) add(x);
+        heapify();
     }
 
     @Override
     public int size() {
-        return heap.size();
+        return size;
     }
 
     @Override
     public int getCurrentSize() {
-        return heap.size();
+        return size;
     }
 
     @Override
     public boolean isEmpty() {
-        return heap.isEmpty();
+        return size == 0;
     }
 
     @Override
     public void clear() {
-        heap.clear();
+        Arrays.fill(heap, 0, size, null);
+        size = 0;
+        slots.clear();
     }
 
+    /** Heap-array order (not sorted) */
     @Override
     public List<T> toList() {
-        return new ArrayList<>(heap);
+        List<T> out = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) out.add(heap[i].item);
+        return out;
     }
 
 	@Override
 	public int getSize() {
-		return heap.size();
+		return size;
 	}
-}
\ No newline at end of file
+}
@@ -1,264 +1,195 @@
 package model.trail;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * Multi-dimensional index using ONLY your custom ADTs:
- * - TrailHashMap
- * - TrailTreeMap
- * - TrailList
+ * Multi-dimensional trail index (topic, difficulty, length, visitHours,
+ * elevationGain, petFriendly, campingAllowed, wildlife, location).
  *
- * Index fields:
- *  topic, difficulty, length, visitHours, petFriendly, campingAllowed, wildlife
+ * The data itself lives in an immutable TrailIndexSnapshot. addTrail and
+ * removeTrail build the next snapshot in O(log n) (structural sharing) and
+ * publish it with one volatile write, so:
+ *  - readers call snapshot() once and work on a catalog that can never
+ *    change under them — no locks, no defensive copies;
+ *  - the convenience accessors below always answer from the latest snapshot.
+ * Writers are serialised on this object.
+ *
+ * Removals only tombstone the trail (see TrailIndexSnapshot); once enough
+ * tombstones pile up, one compaction is queued on a shared background
+ * thread. It builds the compacted snapshot without holding the writer lock
+ * and publishes it only if no write happened meanwhile (otherwise the next
+ * removal queues another try).
+ *
+ * Every trail added is interned in TrailRegistry; its dense int id is the
+ * stable key for references that outlive a snapshot (saved groups, caches).
  */
 public class TrailIndex {
-    // ─────── Primary storage ───────
-    private final TrailList<Trail> allTrails = new TrailList<>();
-    private final TrailHashMap<String, Trail> nameIndex = new TrailHashMap<>();
-    // ─────── Secondary index (custom ADTs) ───────
-    private final TrailHashMap<Difficulty, TrailList<Trail>> difficultyIndex =
-            new TrailHashMap<>();
-    // length → list of trails（≤ maxLength range query）
-    private final TrailTreeMap<Double, TrailList<Trail>> lengthIndex =
-            new TrailTreeMap<>();
-    // visitHours → list of trails（≤ maxVisitHours range query）
-    private final TrailTreeMap<Double, TrailList<Trail>> visitHoursIndex =
-            new TrailTreeMap<>();
-    // feature → list of trails (pet, camping, bird, icy, wildlife)
-    private final TrailHashMap<String, TrailList<Trail>> featureIndex =
-            new TrailHashMap<>();
-    // topic → list of trails
-    private final TrailHashMap<String, TrailList<Trail>> topicIndex =
-            new TrailHashMap<>();
 
-    // ─────── Constructor ───────
-    public TrailIndex() {
-        // init difficulty
-        for (Difficulty d : Difficulty.values()) {
-            difficultyIndex.put(d, new TrailList<>());
-        }
-        // init boolean feature categories
-        featureIndex.put("pet_friendly", new TrailList<>());
-        featureIndex.put("camping", new TrailList<>());
-        featureIndex.put("bird", new TrailList<>());
-        featureIndex.put("animal", new TrailList<>());   // 保留占位（目前未单独使用）
-        featureIndex.put("icy", new TrailList<>());
-        featureIndex.put("wildlife", new TrailList<>());
+    private static final ExecutorService COMPACTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "trail-index-compactor");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private volatile TrailIndexSnapshot current = TrailIndexSnapshot.EMPTY;
+    private final AtomicBoolean compactionQueued = new AtomicBoolean();
+
+    // ─────── Snapshot ───────
+    /** The current immutable version; stays valid after later writes */
+    public TrailIndexSnapshot snapshot() {
+        return current;
     }
+
     // ─────── Add Trail ───────
-    public void addTrail(Trail t) {
-        // 1. master list
-        allTrails.add(t);
-        // 2. name index
-        nameIndex.put(t.getName().toLowerCase(), t);
-        // 3. difficulty index
-        TrailList<Trail> diffList = difficultyIndex.get(t.getDifficulty());
-        if (diffList == null) {
-            diffList = new TrailList<>();
-            difficultyIndex.put(t.getDifficulty(), diffList);
-        }
-        diffList.add(t);
+    /** Returns t's TrailRegistry id */
+    public synchronized int addTrail(Trail t) {
+        current = current.withTrail(t);
+        return t.getId();
+    }
 
-        // 4. length index
-        TrailList<Trail> lenList = lengthIndex.get(t.getLength());
-        if (lenList == null) {
-            lenList = new TrailList<>();
-            lengthIndex.put(t.getLength(), lenList);
-        }
-        lenList.add(t);
+    /** Add a batch and publish once (readers never see a half-loaded batch) */
+    public synchronized void addAll(Collection<? extends Trail> trails) {
+        current = current.withTrails(trails);
+    }
 
-        // 5. visitHours index
-        TrailList<Trail> vhList = visitHoursIndex.get(t.getVisitHours());
-        if (vhList == null) {
-            vhList = new TrailList<>();
-            visitHoursIndex.put(t.getVisitHours(), vhList);
-        }
-        vhList.add(t);
+    // ─────── Remove Trail ───────
+    public boolean removeTrail(Trail t) {
+        return removeAll(List.of(t)) == 1;
+    }
 
-        // 6. features
-        if (t.isPetFriendly()) {
-            TrailList<Trail> list = featureIndex.get("pet_friendly");
-            if (list == null) {
-                list = new TrailList<>();
-                featureIndex.put("pet_friendly", list);
-            }
-            list.add(t);
+    /** Remove a batch (e.g. a park's trails closing for the season) and publish once; returns how many were removed */
+    public int removeAll(Collection<? extends Trail> trails) {
+        TrailIndexSnapshot next;
+        int removed;
+        synchronized (this) {
+            TrailIndexSnapshot prev = current;
+            next = prev.withoutTrails(trails);
+            removed = prev.size() - next.size();
+            current = next;
         }
-
-        if (t.isCampingAllowed()) {
-            TrailList<Trail> list = featureIndex.get("camping");
-            if (list == null) {
-                list = new TrailList<>();
-                featureIndex.put("camping", list);
-            }
-            list.add(t);
-        }
-
-        if (t.isBirdSpotted()) {
-            TrailList<Trail> list = featureIndex.get("bird");
-            if (list == null) {
-                list = new TrailList<>();
-                featureIndex.put("bird", list);
-            }
-            list.add(t);
+        if (next.needsCompaction() && compactionQueued.compareAndSet(false, true)) {
+            COMPACTOR.execute(this::compactInBackground);
         }
+        return removed;
+    }
 
-        if (t.isWildAnimalPossible()) {
-            TrailList<Trail> list = featureIndex.get("wildlife");
-            if (list == null) {
-                list = new TrailList<>();
-                featureIndex.put("wildlife", list);
-            }
-            list.add(t);
-        }
+    // ─────── Compaction ───────
+    /** Purge tombstones now, on the caller's thread */
+    public synchronized void compact() {
+        current = current.compacted();
+    }
 
-        if (t.isIcyTrail()) {
-            TrailList<Trail> list = featureIndex.get("icy");
-            if (list == null) {
-                list = new TrailList<>();
-                featureIndex.put("icy", list);
+    private void compactInBackground() {
+        try {
+            TrailIndexSnapshot base = current;
+            TrailIndexSnapshot next = base.compacted();   // the expensive part, outside the lock
+            synchronized (this) {
+                if (current == base) current = next;
             }
-            list.add(t);
-        }
-
-        // 7. topic index
-        String topicKey = t.getTopic().name().toLowerCase();
-        TrailList<Trail> tp = topicIndex.get(topicKey);
-        if (tp == null) {
-            tp = new TrailList<>();
-            topicIndex.put(topicKey, tp);
+        } finally {
+            compactionQueued.set(false);
         }
-        tp.add(t);
     }
 
-
-    // ─────── Accessors ───────
+    // ─────── Accessors (answer from the latest snapshot) ───────
     public List<Trail> getFeature(String feature) {
-        TrailList<Trail> list = featureIndex.get(feature);
-        return list == null ? List.of() : list.toList();
+        return current.getFeature(feature);
     }
 
     public List<Trail> getByTopic(String topic) {
-        TrailList<Trail> list = topicIndex.get(topic.toLowerCase());
-        return list == null ? List.of() : list.toList();
+        return current.getByTopic(topic);
     }
 
     public List<Trail> getAll() {
-        return allTrails.toList();
+        return current.getAll();
     }
 
     public List<Trail> getByDifficulty(Difficulty d) {
-        TrailList<Trail> list = difficultyIndex.get(d);
-        return list != null ? list.toList() : List.of();
+        return current.getByDifficulty(d);
     }
 
     /** length ≤ maxLength */
     public List<Trail> getWithinLength(double maxLength) {
-        List<Trail> result = new ArrayList<>();
-        for (Double key : lengthIndex.keySet()) {
-            if (key <= maxLength) {
-                TrailList<Trail> list = lengthIndex.get(key);
-                if (list != null) result.addAll(list.toList());
-            }
-        }
-        return result;
+        return current.getWithinLength(maxLength);
     }
 
     /** visitHours ≤ maxVisitHours */
     public List<Trail> getWithinVisitHours(double maxVisitHours) {
-        List<Trail> result = new ArrayList<>();
-        for (Trail t : allTrails.toList()) {
-            if (t.getVisitHours() <= maxVisitHours) {
-                result.add(t);
-            }
-        }
-        return result;
+        return current.getWithinVisitHours(maxVisitHours);
     }
 
-
-    // ─────── Combined Filtering (expanded to include visitHours) ───────
-    public Set<Trail> filter(
-            Difficulty diff,
-            Double maxLength,
-            Boolean petFriendly,
-            Boolean camping,
-            String topic,
-            Boolean wildlife,
-            Double maxVisitHours
-    ) {
-        Set<Trail> candidates = new HashSet<>(getAll()); // start with all trails
-        if (diff != null)
-            candidates.retainAll(getByDifficulty(diff)); // match difficulty
-        if (maxLength != null)
-            candidates.retainAll(getWithinLength(maxLength)); // length <= maxLength
-        if (maxVisitHours != null)
-            candidates.retainAll(getWithinVisitHours(maxVisitHours)); // visitHours <= maxVisitHours
-        if (petFriendly != null && petFriendly)
-            candidates.retainAll(getFeature("pet_friendly")); // must be pet-friendly
-        if (camping != null && camping)
-            candidates.retainAll(getFeature("camping")); // must allow camping
-        if (topic != null)
-            candidates.retainAll(getByTopic(topic)); // match topic type
-        if (wildlife != null && wildlife)
-            candidates.retainAll(getFeature("wildlife")); // wildlife desired
-        return candidates; // final filtered result
+    // ─────── Range queries (ordinals, null bound = open) ───────
+    public TrailBitmap lengthBetween(Double min, Double max) {
+        return current.lengthBetween(min, max);
     }
 
+    public TrailBitmap visitHoursBetween(Double min, Double max) {
+        return current.visitHoursBetween(min, max);
+    }
 
-    // ─────── Remove Trail ───────
-    public boolean removeTrail(Trail t) {
-
-        boolean removed = allTrails.remove(t);
-        if (!removed) return false;
-
-        // name index
-        nameIndex.remove(t.getName().toLowerCase());
+    public TrailBitmap elevationBetween(Double min, Double max) {
+        return current.elevationBetween(min, max);
+    }
 
-        // difficulty index
-        TrailList<Trail> diffList = difficultyIndex.get(t.getDifficulty());
-        if (diffList != null) diffList.remove(t);
+    // ─────── Spatial queries ───────
+    public TrailBitmap withinRadius(double lat, double lon, double miles) {
+        return current.withinRadius(lat, lon, miles);
+    }
 
-        // length index
-        TrailList<Trail> list1 = lengthIndex.get(t.getLength());
-        if (list1 != null) list1.remove(t);
+    public TrailBitmap withinBox(double minLat, double minLon, double maxLat, double maxLon) {
+        return current.withinBox(minLat, minLon, maxLat, maxLon);
+    }
 
-        // visitHours index
-        TrailList<Trail> list2 = visitHoursIndex.get(t.getVisitHours());
-        if (list2 != null) list2.remove(t);
+    /** The k trails closest to (lat, lon), nearest first */
+    public List<Trail> nearest(double lat, double lon, int k) {
+        return current.nearest(lat, lon, k);
+    }
 
-        // feature index
-        for (String key : featureIndex.keySet()) {
-            TrailList<Trail> fl = featureIndex.get(key);
-            if (fl != null) fl.remove(t);
-        }
+    // ─────── Combined Filtering ───────
+    /** Cost-ordered plan over the latest snapshot (see TrailQueryPlan) */
+    public TrailQueryPlan plan(TrailQuery q) {
+        return current.plan(q);
+    }
 
-        // topic index
-        for (String key : topicIndex.keySet()) {
-            TrailList<Trail> tl = topicIndex.get(key);
-            if (tl != null) tl.remove(t);
-        }
+    /** Per-value counts over the trails matching q (see TrailFacets) */
+    public TrailFacets facets(TrailQuery q) {
+        return current.facets(q);
+    }
 
-        return true;
+    /** One page of q's matches in sort order; tokens stay valid across writes (see TrailSort) */
+    public TrailPage page(TrailQuery q, TrailSort sort, int pageSize, String pageToken) {
+        return current.page(q, sort, pageSize, pageToken);
     }
 
+    public Set<Trail> filter(
+            Difficulty diff,
+            Double maxLength,
+            Boolean petFriendly,
+            Boolean camping,
+            String topic,
+            Boolean wildlife,
+            Double maxVisitHours
+    ) {
+        return current.filter(diff, maxLength, petFriendly, camping, topic, wildlife, maxVisitHours);
+    }
 
     public int size() {
-        return allTrails.size();
+        return current.size();
     }
 
     public void printStats() {
-        System.out.printf(
-                "Trails=%d | Features=%d | Topics=%d | VisitHoursIndexedKeys=%d%n",
-                size(),
-                featureIndex.size(),
-                topicIndex.size(),
-                // 这里的 size 表示有多少不同的 visitHours key
-                visitHoursIndex.size()
-        );
+        current.printStats();
     }
 
     public Trail getByName(String trailName) {
-        if (trailName == null) return null;
-        return nameIndex.get(trailName.toLowerCase());
+        return current.getByName(trailName);
+    }
+
+    /** The indexed trail with this TrailRegistry id, or null */
+    public Trail getById(int id) {
+        return current.getById(id);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,750 @@
+package model.trail;
+
+import java.util.*;
+import java.util.function.BiPredicate;
+import java.util.function.IntPredicate;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.Supplier;
+
+/**
+ * Immutable version of the trail index.
+ *
+ * withTrail / withoutTrail never change this object: they return a new
+ * snapshot in O(log n) that shares all untouched structure with this one
+ * (TrailPersistentHashMap / TrailPersistentTreeMap underneath). A search,
+ * recommendation or rendering pass that holds a snapshot therefore sees one
+ * consistent catalog for as long as it likes, with no locks and no copies.
+ *
+ * Every add gets an insertion sequence number. Buckets are persistent trees
+ * keyed by that number, so they keep insertion order and support O(log n)
+ * removal. Like the old list-based index, adding an equal trail twice keeps
+ * both entries, and removal drops the earliest one. Trails are interned in
+ * TrailRegistry on the way in; lookups by trail go through that int id.
+ *
+ * The sequence number is also the trail's row in the TrailColumnStore, which
+ * holds the scan-heavy attributes column by column (see columns()), and the
+ * ordinal stored in the difficulty / topic / feature posting lists. Those are
+ * compressed TrailBitmaps, so filter() is a handful of bitmap ANDs and only
+ * the surviving rows are turned back into Trail objects. Length, visit hours
+ * and elevation gain have TrailRangeIndexes whose between(min, max) answers
+ * in the same ordinals. plan(TrailQuery) orders those intersections by their
+ * cardinalities (see TrailQueryPlan). A TrailGeoIndex grid over lat/lon
+ * answers radius, box and nearest-k queries.
+ *
+ * Removal is a tombstone: the ordinal joins the dead bitmap and its column
+ * row is marked dead, while the secondary indexes are left untouched (O(1)
+ * each). Their accessors mask out dead ordinals, and compacted() purges them
+ * in one batch per index once needsCompaction() says the set has grown.
+ */
+public final class TrailIndexSnapshot {
+
+    private static final TrailRegistry REGISTRY = TrailRegistry.global();
+
+    public static final TrailIndexSnapshot EMPTY = createEmpty();
+
+    // ─────── Primary storage ───────
+    private final int nextSeq;
+    private final TrailPersistentTreeMap<Integer, Trail> allTrails;       // seq → trail
+    private final TrailPersistentHashMap<Integer, TrailPersistentTreeMap<Integer, Trail>> seqOf;  // trail id → its seqs
+    private final TrailPersistentHashMap<String, Trail> nameIndex;
+    private final TrailColumnStore columns;                               // row = seq
+    // ─────── Secondary index ───────
+    private final TrailPersistentHashMap<Difficulty, TrailBitmap> difficultyIndex;
+    private final TrailRangeIndex lengthIndex;
+    private final TrailRangeIndex visitHoursIndex;
+    private final TrailRangeIndex elevationIndex;
+    private final TrailGeoIndex geoIndex;
+    private final TrailPersistentHashMap<String, TrailBitmap> featureIndex;
+    private final TrailPersistentHashMap<String, TrailBitmap> topicIndex;
+    // ─────── Tombstones ───────
+    private final TrailBitmap dead;            // removed ordinals still present in the secondary indexes
+    // ─────── Derived (lazy) ───────
+    private volatile TrailKdTree sliderTree;   // built on first use; two racing builds are equal
+
+    private TrailIndexSnapshot(
+            int nextSeq,
+            TrailPersistentTreeMap<Integer, Trail> allTrails,
+            TrailPersistentHashMap<Integer, TrailPersistentTreeMap<Integer, Trail>> seqOf,
+            TrailPersistentHashMap<String, Trail> nameIndex,
+            TrailColumnStore columns,
+            TrailPersistentHashMap<Difficulty, TrailBitmap> difficultyIndex,
+            TrailRangeIndex lengthIndex,
+            TrailRangeIndex visitHoursIndex,
+            TrailRangeIndex elevationIndex,
+            TrailGeoIndex geoIndex,
+            TrailPersistentHashMap<String, TrailBitmap> featureIndex,
+            TrailPersistentHashMap<String, TrailBitmap> topicIndex,
+            TrailBitmap dead
+    ) {
+        this.nextSeq = nextSeq;
+        this.allTrails = allTrails;
+        this.seqOf = seqOf;
+        this.nameIndex = nameIndex;
+        this.columns = columns;
+        this.difficultyIndex = difficultyIndex;
+        this.lengthIndex = lengthIndex;
+        this.visitHoursIndex = visitHoursIndex;
+        this.elevationIndex = elevationIndex;
+        this.geoIndex = geoIndex;
+        this.featureIndex = featureIndex;
+        this.topicIndex = topicIndex;
+        this.dead = dead;
+    }
+
+    // difficulty and feature keys exist from the start, even when empty
+    private static TrailIndexSnapshot createEmpty() {
+        TrailPersistentHashMap<Difficulty, TrailBitmap> diff = TrailPersistentHashMap.empty();
+        for (Difficulty d : Difficulty.values()) diff = diff.with(d, TrailBitmap.EMPTY);
+
+        TrailPersistentHashMap<String, TrailBitmap> feat = TrailPersistentHashMap.empty();
+        for (String f : new String[] { "pet_friendly", "camping", "bird", "animal", "icy", "wildlife" })
+            feat = feat.with(f, TrailBitmap.EMPTY);
+
+        return new TrailIndexSnapshot(0,
+                TrailPersistentTreeMap.empty(), TrailPersistentHashMap.empty(), TrailPersistentHashMap.empty(),
+                TrailColumnStore.EMPTY,
+                diff, TrailRangeIndex.EMPTY, TrailRangeIndex.EMPTY, TrailRangeIndex.EMPTY, TrailGeoIndex.EMPTY,
+                feat, TrailPersistentHashMap.empty(), TrailBitmap.EMPTY);
+    }
+
+    // ─────── Bucket helpers ───────
+    private static <K> TrailPersistentHashMap<K, TrailPersistentTreeMap<Integer, Trail>> plus(
+            TrailPersistentHashMap<K, TrailPersistentTreeMap<Integer, Trail>> idx, K key, int seq, Trail t) {
+        TrailPersistentTreeMap<Integer, Trail> bucket = idx.getOrDefault(key, TrailPersistentTreeMap.empty());
+        return idx.with(key, bucket.with(seq, t));
+    }
+
+    // posting lists: new ordinals are always the largest, so a batch is one OR per key
+    private static <K> TrailPersistentHashMap<K, TrailBitmap> plusRows(
+            TrailPersistentHashMap<K, TrailBitmap> idx, TrailOpenHashMap<K, TrailBitmap.Builder> added) {
+        for (K key : added.keySet()) {
+            idx = idx.with(key, idx.getOrDefault(key, TrailBitmap.EMPTY).or(added.get(key).build()));
+        }
+        return idx;
+    }
+
+    private static <K> void addRow(TrailOpenHashMap<K, TrailBitmap.Builder> added, K key, int seq) {
+        added.computeIfAbsent(key, new TrailBitmap.Builder()).add(seq);
+    }
+
+    // compaction: one andNot per posting list
+    private static <K> TrailPersistentHashMap<K, TrailBitmap> minusRows(
+            TrailPersistentHashMap<K, TrailBitmap> idx, TrailBitmap removed) {
+        List<K> touched = new ArrayList<>();
+        idx.forEachEntry((key, rows) -> {
+            if (rows.andCardinality(removed) > 0) touched.add(key);
+        });
+        for (K key : touched) idx = idx.with(key, idx.get(key).andNot(removed));
+        return idx;
+    }
+
+    // ─────── Add Trail ───────
+    /** Snapshot that also contains t */
+    public TrailIndexSnapshot withTrail(Trail t) {
+        return withTrails(List.of(t));
+    }
+
+    /** Snapshot that also contains every trail of the batch, in order */
+    public TrailIndexSnapshot withTrails(Collection<? extends Trail> trails) {
+        if (trails.isEmpty()) return this;
+
+        int seq = nextSeq;
+        var all = allTrails;
+        var seqs = seqOf;
+        var names = nameIndex;
+        double[] len = new double[trails.size()];
+        double[] vh = new double[len.length];
+        double[] elev = new double[len.length];
+        double[] lat = new double[len.length];
+        double[] lon = new double[len.length];
+        TrailOpenHashMap<Difficulty, TrailBitmap.Builder> diff = new TrailOpenHashMap<>();
+        TrailOpenHashMap<String, TrailBitmap.Builder> feat = new TrailOpenHashMap<>();
+        TrailOpenHashMap<String, TrailBitmap.Builder> topics = new TrailOpenHashMap<>();
+
+        for (Trail t : trails) {
+            all = all.with(seq, t);
+            seqs = plus(seqs, REGISTRY.intern(t), seq, t);
+            names = names.with(t.getName().toLowerCase(), t);
+            addRow(diff, t.getDifficulty(), seq);
+            len[seq - nextSeq] = t.getLength();
+            vh[seq - nextSeq] = t.getVisitHours();
+            elev[seq - nextSeq] = t.getElevationGain();
+            lat[seq - nextSeq] = t.getLat();
+            lon[seq - nextSeq] = t.getLon();
+
+            if (t.isPetFriendly()) addRow(feat, "pet_friendly", seq);
+            if (t.isCampingAllowed()) addRow(feat, "camping", seq);
+            if (t.isBirdSpotted()) addRow(feat, "bird", seq);
+            if (t.isWildAnimalPossible()) addRow(feat, "wildlife", seq);
+            if (t.isIcyTrail()) addRow(feat, "icy", seq);
+
+            addRow(topics, t.getTopic().name().toLowerCase(), seq);
+            seq++;
+        }
+
+        // rows are appended in the same order, so row == seq
+        return new TrailIndexSnapshot(seq, all, seqs, names, columns.appendAll(trails),
+                plusRows(difficultyIndex, diff),
+                lengthIndex.withAll(len, nextSeq),
+                visitHoursIndex.withAll(vh, nextSeq),
+                elevationIndex.withAll(elev, nextSeq),
+                geoIndex.withAll(lat, lon, nextSeq),
+                plusRows(featureIndex, feat), plusRows(topicIndex, topics), dead);
+    }
+
+    // ─────── Remove Trail ───────
+    /** Snapshot without t (this snapshot if t is not indexed) */
+    public TrailIndexSnapshot withoutTrail(Trail t) {
+        return withoutTrails(List.of(t));
+    }
+
+    /**
+     * Snapshot without every trail of the batch (one occurrence each, the
+     * earliest, as TrailList.remove did). Secondary indexes are not touched:
+     * the ordinals are tombstoned, so a batch costs O(m log n), not O(m · n).
+     */
+    public TrailIndexSnapshot withoutTrails(Collection<? extends Trail> trails) {
+        var all = allTrails;
+        var seqsOf = seqOf;
+        var names = nameIndex;
+        int[] removed = new int[trails.size()];
+        int n = 0;
+
+        for (Trail t : trails) {
+            int id = REGISTRY.idOf(t);
+            TrailPersistentTreeMap<Integer, Trail> seqs = (id < 0) ? null : seqsOf.get(id);
+            if (seqs == null) continue;
+            int seq = seqs.firstKey();
+            Trail stored = all.get(seq);     // the object the name index points at
+
+            String nameKey = stored.getName().toLowerCase();
+            if (names.get(nameKey) == stored) names = names.without(nameKey);
+            seqsOf = (seqs.size() == 1) ? seqsOf.without(id) : seqsOf.with(id, seqs.without(seq));
+            all = all.without(seq);
+            removed[n++] = seq;
+        }
+        if (n == 0) return this;
+
+        Arrays.sort(removed, 0, n);
+        TrailBitmap.Builder b = new TrailBitmap.Builder();
+        for (int i = 0; i < n; i++) b.add(removed[i]);
+        TrailBitmap rows = b.build();
+
+        return new TrailIndexSnapshot(nextSeq, all, seqsOf, names, columns.withoutRows(rows),
+                difficultyIndex, lengthIndex, visitHoursIndex, elevationIndex, geoIndex,
+                featureIndex, topicIndex, dead.or(rows));
+    }
+
+    // ─────── Compaction ───────
+    private static final int COMPACT_MIN_DEAD = 1024;
+
+    /** Tombstones not yet purged from the secondary indexes */
+    public int deadRows() {
+        return dead.cardinality();
+    }
+
+    /** True once tombstones are numerous enough to slow the masked accessors */
+    public boolean needsCompaction() {
+        int d = dead.cardinality();
+        return d >= COMPACT_MIN_DEAD || (d > 0 && d * 8 >= columns.liveRows());
+    }
+
+    /**
+     * Same catalog with every tombstone purged: one batch update per
+     * secondary index, and the column store drops the dead rows' Trails.
+     * Ordinals do not change and no memory is released (see TrailRegistry).
+     */
+    public TrailIndexSnapshot compacted() {
+        if (dead.isEmpty()) return this;
+        return new TrailIndexSnapshot(nextSeq, allTrails, seqOf, nameIndex, columns.purge(dead),
+                minusRows(difficultyIndex, dead),
+                lengthIndex.withoutRows(dead, columns::length),
+                visitHoursIndex.withoutRows(dead, columns::visitHours),
+                elevationIndex.withoutRows(dead, columns::elevationGain),
+                geoIndex.withoutRows(dead, columns::lat, columns::lon),
+                minusRows(featureIndex, dead), minusRows(topicIndex, dead),
+                TrailBitmap.EMPTY);
+    }
+
+    // secondary-index answers never include tombstoned ordinals
+    private TrailBitmap live(TrailBitmap rows) {
+        return dead.isEmpty() ? rows : rows.andNot(dead);
+    }
+
+    // ─────── Accessors (immutable views, no copy) ───────
+    public List<Trail> getFeature(String feature) {
+        return trailsOf(featureRows(feature));
+    }
+
+    public List<Trail> getByTopic(String topic) {
+        return trailsOf(topicRows(topic));
+    }
+
+    public List<Trail> getAll() {
+        return allTrails.values();
+    }
+
+    public List<Trail> getByDifficulty(Difficulty d) {
+        return trailsOf(difficultyRows(d));
+    }
+
+    // ─────── Posting lists (ordinals) ───────
+    public TrailBitmap difficultyRows(Difficulty d) {
+        return live(difficultyIndex.getOrDefault(d, TrailBitmap.EMPTY));
+    }
+
+    public TrailBitmap topicRows(String topic) {
+        return live(topicIndex.getOrDefault(topic.toLowerCase(), TrailBitmap.EMPTY));
+    }
+
+    public TrailBitmap featureRows(String feature) {
+        return live(featureIndex.getOrDefault(feature, TrailBitmap.EMPTY));
+    }
+
+    /** Immutable List view of the trails behind a set of ordinals (no copy) */
+    public List<Trail> trailsOf(TrailBitmap rows) {
+        return new AbstractList<>() {
+            private final int size = rows.cardinality();
+
+            @Override
+            public Trail get(int index) {
+                return columns.trail(rows.select(index));
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public Iterator<Trail> iterator() {
+                PrimitiveIterator.OfInt it = rows.iterator();
+                return new Iterator<>() {
+                    @Override public boolean hasNext() { return it.hasNext(); }
+                    @Override public Trail next() { return columns.trail(it.nextInt()); }
+                };
+            }
+        };
+    }
+
+    /** Column view of the attributes; row numbers match this snapshot's sequence numbers */
+    public TrailColumnStore columns() {
+        return columns;
+    }
+
+    /** Column scan: live trails matching q, in insertion order */
+    public TrailList<Trail> select(TrailColumnStore.Query q) {
+        return columns.select(q);
+    }
+
+    public boolean contains(Trail t) {
+        int id = REGISTRY.idOf(t);
+        return id >= 0 && seqOf.containsKey(id);
+    }
+
+    /** Ordinal of t's earliest occurrence, or -1 if t is not indexed */
+    public int ordinalOf(Trail t) {
+        int id = REGISTRY.idOf(t);
+        TrailPersistentTreeMap<Integer, Trail> seqs = (id < 0) ? null : seqOf.get(id);
+        return seqs == null ? -1 : seqs.firstKey();
+    }
+
+    /** The indexed trail with this TrailRegistry id (earliest occurrence), or null */
+    public Trail getById(int id) {
+        TrailPersistentTreeMap<Integer, Trail> seqs = seqOf.get(id);
+        return seqs == null ? null : seqs.valueAt(0);
+    }
+
+    /** length ≤ maxLength, in insertion order */
+    public List<Trail> getWithinLength(double maxLength) {
+        return trailsOf(lengthBetween(null, maxLength));
+    }
+
+    /** visitHours ≤ maxVisitHours, in insertion order */
+    public List<Trail> getWithinVisitHours(double maxVisitHours) {
+        return trailsOf(visitHoursBetween(null, maxVisitHours));
+    }
+
+    // ─────── Range indexes (ordinals, null bound = open) ───────
+    /** min ≤ length ≤ max */
+    public TrailBitmap lengthBetween(Double min, Double max) {
+        return live(lengthIndex.between(min, max));
+    }
+
+    /** min ≤ visitHours ≤ max */
+    public TrailBitmap visitHoursBetween(Double min, Double max) {
+        return live(visitHoursIndex.between(min, max));
+    }
+
+    /** min ≤ elevationGain ≤ max */
+    public TrailBitmap elevationBetween(Double min, Double max) {
+        return live(elevationIndex.between(min, max));
+    }
+
+    /**
+     * All three slider ranges at once (null bound = open), answered by one
+     * orthogonal range query on a TrailKdTree instead of three ranges ANDed.
+     */
+    public TrailBitmap rangesBetween(Double minLength, Double maxLength, Double minVisitHours,
+                                     Double maxVisitHours, Double minElevation, Double maxElevation) {
+        TrailKdTree t = sliderTree;
+        if (t == null) sliderTree = t = TrailKdTree.build(columns);
+        return t.within(
+                new double[] { lo(minLength), lo(minVisitHours), lo(minElevation) },
+                new double[] { hi(maxLength), hi(maxVisitHours), hi(maxElevation) });
+    }
+
+    // ─────── Spatial queries ───────
+    /** Trails within miles of (lat, lon), as ordinals */
+    public TrailBitmap withinRadius(double lat, double lon, double miles) {
+        return geoIndex.withinRadius(columns, lat, lon, miles);
+    }
+
+    /** Trails inside the box, as ordinals; minLon &gt; maxLon crosses the antimeridian */
+    public TrailBitmap withinBox(double minLat, double minLon, double maxLat, double maxLon) {
+        return geoIndex.withinBox(columns, minLat, minLon, maxLat, maxLon);
+    }
+
+    /** The k trails closest to (lat, lon), nearest first */
+    public List<Trail> nearest(double lat, double lon, int k) {
+        int[] rows = geoIndex.nearest(columns, lat, lon, k);
+        List<Trail> out = new ArrayList<>(rows.length);
+        for (int r : rows) out.add(columns.trail(r));
+        return out;
+    }
+
+    // ─────── Combined Filtering ───────
+    public Set<Trail> filter(
+            Difficulty diff,
+            Double maxLength,
+            Boolean petFriendly,
+            Boolean camping,
+            String topic,
+            Boolean wildlife,
+            Double maxVisitHours
+    ) {
+        TrailBitmap rows = filterRows(diff, maxLength, petFriendly, camping, topic, wildlife, maxVisitHours);
+        Set<Trail> out = new HashSet<>();
+        rows.forEach(r -> out.add(columns.trail(r)));   // materialize survivors only
+        return out;
+    }
+
+    /** Same criteria as filter(), answered as ordinals */
+    public TrailBitmap filterRows(
+            Difficulty diff,
+            Double maxLength,
+            Boolean petFriendly,
+            Boolean camping,
+            String topic,
+            Boolean wildlife,
+            Double maxVisitHours
+    ) {
+        // feature flags only ever narrowed to "must have"; false was never a filter here
+        return plan(new TrailQuery()
+                .difficulty(diff)                                   // match difficulty
+                .lengthBetween(null, maxLength)                     // length <= maxLength
+                .feature("pet_friendly", mustHave(petFriendly))     // must be pet-friendly
+                .feature("camping", mustHave(camping))              // must allow camping
+                .topic(topic)                                       // match topic type
+                .feature("wildlife", mustHave(wildlife))            // wildlife desired
+                .visitHoursBetween(null, maxVisitHours)             // visitHours <= maxVisitHours
+        ).execute();
+    }
+
+    private static Boolean mustHave(Boolean b) {
+        return (b != null && b) ? Boolean.TRUE : null;
+    }
+
+    // ─────── Query planning ───────
+    /** Cost-ordered plan for q; inspect it with steps() / toString(), run it with execute() */
+    public TrailQueryPlan plan(TrailQuery q) {
+        List<TrailQueryPlan.Step> steps = new ArrayList<>();
+        int live = columns.liveRows();
+
+        if (q.difficulty != null) steps.add(TrailQueryPlan.Step.posting("difficulty=" + q.difficulty, difficultyRows(q.difficulty)));
+        if (q.maxDifficulty != null) {
+            TrailBitmap rows = TrailBitmap.EMPTY;
+            for (Difficulty d : Difficulty.values()) {
+                if (d.rank() <= q.maxDifficulty.rank()) rows = rows.or(difficultyRows(d));
+            }
+            steps.add(TrailQueryPlan.Step.posting("difficulty<=" + q.maxDifficulty, rows));
+        }
+        if (q.topic != null) steps.add(TrailQueryPlan.Step.posting("topic=" + q.topic.toLowerCase(), topicRows(q.topic)));
+        for (Map.Entry<String, Boolean> f : q.features.entrySet()) {
+            TrailBitmap rows = featureRows(f.getKey());
+            steps.add(f.getValue()
+                    ? TrailQueryPlan.Step.posting(f.getKey(), rows)
+                    : TrailQueryPlan.Step.exclude("!" + f.getKey(), rows, live));
+        }
+        List<TrailQueryPlan.Step> ranges = new ArrayList<>();
+        if (q.minLength != null || q.maxLength != null)
+            ranges.add(rangeStep("length", lengthIndex, q.minLength, q.maxLength,
+                    () -> lengthBetween(q.minLength, q.maxLength), columns::length));
+        if (q.minVisitHours != null || q.maxVisitHours != null)
+            ranges.add(rangeStep("visitHours", visitHoursIndex, q.minVisitHours, q.maxVisitHours,
+                    () -> visitHoursBetween(q.minVisitHours, q.maxVisitHours), columns::visitHours));
+        if (q.minElevation != null || q.maxElevation != null)
+            ranges.add(rangeStep("elevationGain", elevationIndex, q.minElevation, q.maxElevation,
+                    () -> elevationBetween(q.minElevation, q.maxElevation), columns::elevationGain));
+
+        if (ranges.size() < 2) {
+            steps.addAll(ranges);
+        } else {
+            // several sliders: one k-d tree box instead of several ranges ANDed
+            double est = live;
+            StringBuilder label = new StringBuilder("box(");
+            IntPredicate probe = row -> true;
+            for (TrailQueryPlan.Step st : ranges) {
+                est = est * st.estimate() / Math.max(1, live);
+                if (label.length() > 4) label.append(',');
+                label.append(st.label());
+                probe = probe.and(st.probe());
+            }
+            steps.add(TrailQueryPlan.Step.range(label.append(')').toString(), (int) Math.ceil(est),
+                    () -> rangesBetween(q.minLength, q.maxLength, q.minVisitHours, q.maxVisitHours,
+                            q.minElevation, q.maxElevation),
+                    probe));
+        }
+
+        return TrailQueryPlan.plan(steps, () -> columns.selectRows(new TrailColumnStore.Query()), live);
+    }
+
+    private static TrailQueryPlan.Step rangeStep(String label, TrailRangeIndex index, Double min, Double max,
+                                                 Supplier<TrailBitmap> rows, IntToDoubleFunction column) {
+        double lo = lo(min), hi = hi(max);
+        return TrailQueryPlan.Step.range(label, index.estimate(min, max), rows, r -> {
+            double v = column.applyAsDouble(r);
+            return v >= lo && v <= hi;
+        });
+    }
+
+    // ─────── Facets ───────
+    public static final int FACET_BUCKETS = 10;
+
+    /** Facet counts over the trails matching q (see TrailFacets) */
+    public TrailFacets facets(TrailQuery q) {
+        return facets(q, FACET_BUCKETS);
+    }
+
+    public TrailFacets facets(TrailQuery q, int buckets) {
+        TrailBitmap rows = plan(q).execute();      // live rows only, so the raw postings need no masking
+
+        Map<Difficulty, Integer> byDifficulty = new EnumMap<>(Difficulty.class);
+        for (Difficulty d : Difficulty.values()) {
+            byDifficulty.put(d, rows.andCardinality(difficultyIndex.getOrDefault(d, TrailBitmap.EMPTY)));
+        }
+        Map<Topic, Integer> byTopic = new EnumMap<>(Topic.class);
+        for (Topic t : Topic.values()) {
+            byTopic.put(t, rows.andCardinality(topicIndex.getOrDefault(t.name().toLowerCase(), TrailBitmap.EMPTY)));
+        }
+        Map<String, Integer> byFlag = new LinkedHashMap<>();
+        for (String f : TrailFacets.FLAGS) {
+            byFlag.put(f, rows.andCardinality(featureIndex.getOrDefault(f, TrailBitmap.EMPTY)));
+        }
+
+        TrailFacets.Histogram len = histogram(lengthIndex, buckets);
+        TrailFacets.Histogram vh = histogram(visitHoursIndex, buckets);
+        TrailFacets.Histogram elev = histogram(elevationIndex, buckets);
+        rows.forEach(r -> {
+            len.add(columns.length(r));
+            vh.add(columns.visitHours(r));
+            elev.add(columns.elevationGain(r));
+        });
+        return new TrailFacets(rows.cardinality(), byDifficulty, byTopic, byFlag, len, vh, elev);
+    }
+
+    private static TrailFacets.Histogram histogram(TrailRangeIndex index, int buckets) {
+        Double min = index.min(), max = index.max();
+        return (min == null) ? new TrailFacets.Histogram(0, 0, buckets) : new TrailFacets.Histogram(min, max, buckets);
+    }
+
+    // ─────── Sorted pages ───────
+    // below 1 match in PAGE_SCAN_RATIO rows, sorting the matches beats walking the sort index
+    private static final int PAGE_SCAN_RATIO = 8;
+
+    private static final Map<String, Integer> FLAG_COLUMNS = Map.of(
+            "pet_friendly", TrailColumnStore.PET, "camping", TrailColumnStore.CAMPING,
+            "bird", TrailColumnStore.BIRD, "wildlife", TrailColumnStore.WILDLIFE, "icy", TrailColumnStore.ICY);
+
+    /**
+     * One page of the trails matching q, in sort order; pass the previous
+     * page's nextPageToken (null for the first page).
+     *
+     * When many rows match, the sort index is walked from the cursor and
+     * each row is checked against q's columns until the page is full, so a
+     * page costs O(pageSize) row checks however many trails match. When q
+     * is selective, its plan runs first and only the matches are ranked.
+     */
+    public TrailPage page(TrailQuery q, TrailSort sort, int pageSize, String pageToken) {
+        if (pageSize <= 0) throw new IllegalArgumentException("pageSize must be positive: " + pageSize);
+        TrailSort.Cursor after = sort.decode(pageToken);
+        TrailQueryPlan plan = plan(q);
+
+        int want = pageSize + 1;                  // one extra row tells whether a next page exists
+        int[] rows;
+        if (plan.isKnownEmpty()) {
+            rows = new int[0];
+        } else if ((long) plan.estimatedRows() * PAGE_SCAN_RATIO < columns.liveRows()) {
+            rows = rankMatches(plan.execute(), sortKey(sort), after, want);
+        } else {
+            rows = walkSorted(q, sort, matcher(q), after, want);
+        }
+
+        int n = Math.min(pageSize, rows.length);
+        List<Trail> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) out.add(columns.trail(rows[i]));
+        String next = (rows.length > pageSize) ? sort.encode(sortKey(sort).applyAsDouble(rows[n - 1]), rows[n - 1]) : null;
+        return new TrailPage(out, next);
+    }
+
+    private IntToDoubleFunction sortKey(TrailSort sort) {
+        return switch (sort.key) {
+            case LENGTH -> columns::length;
+            case ELEVATION -> columns::elevationGain;
+            case DIFFICULTY -> row -> columns.difficulty(row).rank();
+            case DISTANCE -> row -> TrailGeoIndex.distanceMiles(sort.lat, sort.lon, columns.lat(row), columns.lon(row));
+        };
+    }
+
+    private static boolean isAfter(double key, int row, TrailSort.Cursor c) {
+        int cmp = Double.compare(key, c.sortKey);
+        return cmp > 0 || cmp == 0 && row > c.row;
+    }
+
+    // selective query: rank its (few) matches past the cursor
+    private static int[] rankMatches(TrailBitmap matches, IntToDoubleFunction keyOf,
+                                     TrailSort.Cursor after, int want) {
+        int[] rows = new int[matches.cardinality()];
+        double[] keys = new double[rows.length];
+        int[] n = { 0 };
+        matches.forEach(r -> {
+            double k = keyOf.applyAsDouble(r);
+            if (isAfter(k, r, after)) {
+                rows[n[0]] = r;
+                keys[n[0]++] = k;
+            }
+        });
+        Integer[] order = new Integer[n[0]];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, Comparator.<Integer>comparingDouble(i -> keys[i]).thenComparingInt(i -> rows[i]));
+
+        int[] out = new int[Math.min(want, order.length)];
+        for (int i = 0; i < out.length; i++) out[i] = rows[order[i]];
+        return out;
+    }
+
+    // broad query: walk the sort index from the cursor, keep rows that match
+    private int[] walkSorted(TrailQuery q, TrailSort sort, IntPredicate matches, TrailSort.Cursor after, int want) {
+        if (sort.key == TrailSort.Key.DISTANCE) {
+            return geoIndex.nearestAfter(columns, sort.lat, sort.lon, after.sortKey, after.row, want, matches);
+        }
+        int[] out = new int[want];
+        int[] n = { 0 };
+        BiPredicate<Double, TrailBitmap> take = (v, b) -> {
+            PrimitiveIterator.OfInt it = (Double.compare(v, after.sortKey) == 0) ? b.iteratorFrom(after.row + 1) : b.iterator();
+            while (it.hasNext()) {
+                int r = it.nextInt();
+                if (matches.test(r)) {
+                    out[n[0]++] = r;
+                    if (n[0] == want) return false;
+                }
+            }
+            return true;
+        };
+        switch (sort.key) {
+            case LENGTH -> lengthIndex.forEachFrom(walkStart(after, q.minLength), take);
+            case ELEVATION -> elevationIndex.forEachFrom(walkStart(after, q.minElevation), take);
+            default -> {
+                Difficulty[] byRank = Difficulty.values().clone();
+                Arrays.sort(byRank, Comparator.comparingInt(Difficulty::rank));
+                for (Difficulty d : byRank) {
+                    if (d.rank() < after.sortKey) continue;
+                    if (!take.test((double) d.rank(), difficultyIndex.getOrDefault(d, TrailBitmap.EMPTY))) break;
+                }
+            }
+        }
+        return Arrays.copyOf(out, n[0]);
+    }
+
+    // skip straight to q's own lower bound on the sort key, if it is past the cursor
+    private static Double walkStart(TrailSort.Cursor after, Double queryMin) {
+        if (after == TrailSort.START) return queryMin;
+        return (queryMin != null && queryMin > after.sortKey) ? queryMin : after.sortKey;
+    }
+
+    /** The rows of candidates that also match q (column checks per candidate, no index work) */
+    public TrailBitmap retain(TrailBitmap candidates, TrailQuery q) {
+        IntPredicate m = matcher(q);
+        TrailBitmap.Builder out = new TrailBitmap.Builder();
+        candidates.forEach(row -> {
+            if (m.test(row)) out.add(row);
+        });
+        return out.build();
+    }
+
+    /** Row-at-a-time form of q over the columns (live rows only) */
+    private IntPredicate matcher(TrailQuery q) {
+        TrailColumnStore c = columns;
+        Difficulty diff = q.difficulty;
+        int maxRank = (q.maxDifficulty == null) ? Integer.MAX_VALUE : q.maxDifficulty.rank();
+        Topic topic = null;
+        if (q.topic != null) {
+            for (Topic t : Topic.values()) {
+                if (t.name().equalsIgnoreCase(q.topic)) topic = t;
+            }
+            if (topic == null) return row -> false;            // no such topic: matches nothing
+        }
+        Topic wantTopic = topic;
+
+        int nf = 0;
+        int[] flags = new int[q.features.size()];
+        boolean[] values = new boolean[flags.length];
+        for (Map.Entry<String, Boolean> f : q.features.entrySet()) {
+            Integer col = FLAG_COLUMNS.get(f.getKey());
+            if (col == null) {
+                if (f.getValue()) return row -> false;         // unknown flag is never set
+                continue;
+            }
+            flags[nf] = col;
+            values[nf++] = f.getValue();
+        }
+        int flagCount = nf;
+
+        double minLen = lo(q.minLength), maxLen = hi(q.maxLength);
+        double minVh = lo(q.minVisitHours), maxVh = hi(q.maxVisitHours);
+        double minEl = lo(q.minElevation), maxEl = hi(q.maxElevation);
+        return row -> {
+            if (!c.isLive(row)) return false;
+            Difficulty d = c.difficulty(row);
+            if (diff != null && d != diff || d.rank() > maxRank) return false;
+            if (wantTopic != null && c.topic(row) != wantTopic) return false;
+            for (int i = 0; i < flagCount; i++) {
+                if (c.flag(row, flags[i]) != values[i]) return false;
+            }
+            double len = c.length(row), vh = c.visitHours(row), el = c.elevationGain(row);
+            return len >= minLen && len <= maxLen && vh >= minVh && vh <= maxVh && el >= minEl && el <= maxEl;
+        };
+    }
+
+    private static double lo(Double b) { return b == null ? Double.NEGATIVE_INFINITY : b; }
+    private static double hi(Double b) { return b == null ? Double.POSITIVE_INFINITY : b; }
+
+    public int size() {
+        return allTrails.size();
+    }
+
+    public void printStats() {
+        System.out.printf(
+                "Trails=%d | Features=%d | Topics=%d | VisitHoursIndexedKeys=%d%n",
+                size(),
+                featureIndex.size(),
+                topicIndex.size(),
+                visitHoursIndex.distinctValues()
+        );
+    }
+
+    public Trail getByName(String trailName) {
+        if (trailName == null) return null;
+        return nameIndex.get(trailName.toLowerCase());
+    }
+}
@@ -0,0 +1,216 @@
+package model.trail;
+
+import java.util.*;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * int-keyed open-addressing map (linear probing).
+ *
+ * Same layout as TrailOpenHashMap but the keys stay in a primitive int[],
+ * so put/get never box the trail id and never allocate per entry.
+ * Intended for trailId -> groups style indexes.
+ */
+public class TrailIntHashMap<V> implements TrailCollectionInterface<V> {
+
+    /** ---------- Core Storage ---------- */
+    private int[] keys;
+    private Object[] vals;
+    private boolean[] used;
+    private int size = 0;
+
+    private static final int INIT_CAP = 16;          // always a power of two
+    private static final double LOAD_FACTOR = 0.6;
+
+    /** ---------- Constructors ---------- */
+    public TrailIntHashMap() {
+        this(INIT_CAP);
+    }
+
+    /** Pre-size for an expected number of entries (avoids rehash during bulk loads). */
+    public TrailIntHashMap(int expectedSize) {
+        int need = (int) Math.ceil(Math.max(expectedSize, 1) / LOAD_FACTOR);
+        int cap = INIT_CAP;
+        while (cap < need) cap <<= 1;
+        allocate(cap);
+    }
+
+    private void allocate(int cap) {
+        keys = new int[cap];
+        vals = new Object[cap];
+        used = new boolean[cap];
+    }
+
+    /** ---------- Hash Function ---------- */
+    // Fibonacci hashing: dense ids (0,1,2,...) spread over the whole table
+    private int slot(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (keys.length - 1);
+    }
+
+    /** Returns the slot holding key, or -1. */
+    private int find(int key) {
+        int mask = keys.length - 1;
+        int i = slot(key);
+        while (used[i]) {
+            if (keys[i] == key) return i;
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    /** ---------- Resize ---------- */
+    private void resize() {
+        int[] oldKeys = keys;
+        Object[] oldVals = vals;
+        boolean[] oldUsed = used;
+        allocate(oldKeys.length * 2);
+        int mask = keys.length - 1;
+
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (!oldUsed[j]) continue;
+            int i = slot(oldKeys[j]);
+            while (used[i]) i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            vals[i] = oldVals[j];
+            used[i] = true;
+        }
+    }
+
+    /** ---------- put ---------- */
+    public void put(int key, V value) {
+        if (size + 1 > keys.length * LOAD_FACTOR)
+            resize();
+
+        int mask = keys.length - 1;
+        int i = slot(key);
+        while (used[i]) {
+            if (keys[i] == key) {
+                vals[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        vals[i] = value;
+        used[i] = true;
+        size++;
+    }
+
+    /** ---------- get ---------- */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int i = find(key);
+        return i < 0 ? null : (V) vals[i];
+    }
+
+    public V getOrDefault(int key, V defaultValue) {
+        V v = get(key);
+        return (v != null) ? v : defaultValue;
+    }
+
+    public V computeIfAbsent(int key, V defaultValue) {
+        V existing = get(key);
+        if (existing == null) {
+            put(key, defaultValue);
+            return defaultValue;
+        }
+        return existing;
+    }
+
+    /** ---------- containsKey ---------- */
+    public boolean containsKey(int key) {
+        return find(key) >= 0;
+    }
+
+    /** ---------- remove(key) ---------- */
+    public boolean removeByKey(int key) {
+        int i = find(key);
+        if (i < 0) return false;
+        deleteSlot(i);
+        return true;
+    }
+
+    /** Backward-shift deletion (see TrailOpenHashMap). */
+    private void deleteSlot(int hole) {
+        int mask = keys.length - 1;
+        int i = (hole + 1) & mask;
+
+        while (used[i]) {
+            int home = slot(keys[i]);
+            boolean canMove = (hole <= i)
+                    ? (home <= hole || home > i)
+                    : (home <= hole && home > i);
+            if (canMove) {
+                keys[hole] = keys[i];
+                vals[hole] = vals[i];
+                hole = i;
+            }
+            i = (i + 1) & mask;
+        }
+        vals[hole] = null;
+        used[hole] = false;
+        size--;
+    }
+
+    /** ---------- remove(value) ---------- */
+    @Override
+    public boolean remove(V item) {
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i] && Objects.equals(vals[i], item)) {
+                deleteSlot(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** All keys as a primitive array (unordered). */
+    public int[] keys() {
+        int[] out = new int[size];
+        int n = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i]) out[n++] = keys[i];
+        }
+        return out;
+    }
+
+    /** One pass over every entry as (value, key); the key is never boxed. */
+    @SuppressWarnings("unchecked")
+    public void forEachEntry(ObjIntConsumer<? super V> action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i]) action.accept((V) vals[i], keys[i]);
+        }
+    }
+
+    /** ---------- toList ---------- */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<V> toList() {
+        List<V> out = new ArrayList<>(size);
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i]) out.add((V) vals[i]);
+        }
+        return out;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public void clear() {
+        allocate(INIT_CAP);
+        size = 0;
+    }
+
+    /** ---------- unsupported add(V) ---------- */
+    @Override
+    public void add(V item) {
+        throw new UnsupportedOperationException("Use put(key, value) instead.");
+    }
+}
@@ -0,0 +1,150 @@
+package model.trail;
+
+import java.util.*;
+
+/**
+ * Static 3-d tree over (length, visitHours, elevationGain) for the search
+ * sliders: one orthogonal range query answers all three bounds at once.
+ *
+ * The tree is implicit: rows and their three coordinates live in parallel
+ * arrays, and every subrange [lo, hi) is split at its median on the
+ * dimension depth % 3, which sits at index (lo + hi) / 2. Left of the median
+ * everything is &lt;= it on that dimension, right of it everything is &gt;=.
+ * Subranges of LEAF rows or fewer are scanned. A query visits only the
+ * subtrees whose half-space meets the box: O(n^(2/3) + k) for k matches.
+ *
+ * Built once from a snapshot's live column rows in O(n log n)
+ * (quickselect per level); the snapshot builds it lazily on the first
+ * multi-slider query and keeps it for its lifetime.
+ */
+public final class TrailKdTree {
+
+    private static final int DIMS = 3;
+    private static final int LEAF = 8;
+
+    private final int[] rows;
+    private final double[][] coords;     // coords[dim][i] belongs to rows[i]
+
+    // splits inside the constructor, so the final fields cover the reordered arrays
+    private TrailKdTree(int[] rows, double[][] coords) {
+        this.rows = rows;
+        this.coords = coords;
+        split(0, rows.length, 0);
+    }
+
+    /** Tree over the live rows of columns */
+    public static TrailKdTree build(TrailColumnStore columns) {
+        int n = columns.liveRows();
+        int[] rows = new int[n];
+        double[][] c = new double[DIMS][n];
+        int i = 0;
+        for (int r = 0, total = columns.rows(); r < total; r++) {
+            if (!columns.isLive(r)) continue;
+            rows[i] = r;
+            c[0][i] = columns.length(r);
+            c[1][i] = columns.visitHours(r);
+            c[2][i] = columns.elevationGain(r);
+            i++;
+        }
+        return new TrailKdTree(rows, c);
+    }
+
+    // ─────── Build ───────
+    private void split(int lo, int hi, int depth) {
+        while (hi - lo > LEAF) {
+            int mid = (lo + hi) >>> 1;
+            select(lo, hi, mid, depth % DIMS);
+            split(lo, mid, depth + 1);          // recurse on the left, loop on the right
+            lo = mid + 1;
+            depth++;
+        }
+    }
+
+    // quickselect: afterwards [lo, k) <= k <= (k, hi) on dim
+    private void select(int lo, int hi, int k, int dim) {
+        double[] v = coords[dim];
+        hi--;
+        while (hi > lo) {
+            double pivot = v[(lo + hi) >>> 1];
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (v[i] < pivot) i++;
+                while (v[j] > pivot) j--;
+                if (i <= j) swap(i++, j--);
+            }
+            if (k <= j) hi = j;
+            else if (k >= i) lo = i;
+            else return;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int r = rows[a];
+        rows[a] = rows[b];
+        rows[b] = r;
+        for (double[] v : coords) {
+            double x = v[a];
+            v[a] = v[b];
+            v[b] = x;
+        }
+    }
+
+    // ─────── Queries ───────
+    /** Rows with min[d] &lt;= coordinate d &lt;= max[d] on every dimension, as ordinals */
+    public TrailBitmap within(double[] min, double[] max) {
+        Found out = new Found();
+        collect(0, rows.length, 0, min, max, out);
+        int[] sorted = Arrays.copyOf(out.rows, out.size);
+        Arrays.sort(sorted);
+        TrailBitmap.Builder b = new TrailBitmap.Builder();
+        for (int r : sorted) b.add(r);
+        return b.build();
+    }
+
+    private void collect(int lo, int hi, int depth, double[] min, double[] max, Found out) {
+        while (hi - lo > LEAF) {
+            int mid = (lo + hi) >>> 1;
+            int dim = depth % DIMS;
+            double split = coords[dim][mid];
+            if (inside(mid, min, max)) out.add(rows[mid]);
+            boolean left = min[dim] <= split, right = max[dim] >= split;
+            if (left && right) {
+                collect(lo, mid, depth + 1, min, max, out);
+                lo = mid + 1;
+            } else if (left) {
+                hi = mid;
+            } else if (right) {
+                lo = mid + 1;
+            } else {
+                return;
+            }
+            depth++;
+        }
+        for (int i = lo; i < hi; i++) {
+            if (inside(i, min, max)) out.add(rows[i]);
+        }
+    }
+
+    private boolean inside(int i, double[] min, double[] max) {
+        for (int d = 0; d < DIMS; d++) {
+            double v = coords[d][i];
+            if (v < min[d] || v > max[d]) return false;
+        }
+        return true;
+    }
+
+    public int size() {
+        return rows.length;
+    }
+
+    // growable int buffer; matches arrive in tree order, not ordinal order
+    private static final class Found {
+        int[] rows = new int[16];
+        int size;
+
+        void add(int r) {
+            if (size == rows.length) rows = Arrays.copyOf(rows, size * 2);
+            rows[size++] = r;
+        }
+    }
+}
@@ -1,8 +1,16 @@
 package model.trail;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 public class TrailList<T> implements TrailListInterface<T> {
 
@@ -11,19 +19,30 @@ public class TrailList<T> implements TrailListInterface<T> {
 
     private static final int INIT_CAP = 10;
 
-    @SuppressWarnings("unchecked")
     public TrailList() {
-        data = (T[]) new Object[INIT_CAP];
+        this(INIT_CAP);
+    }
+
+    /** Pre-size the backing array (e.g. before a bulk load of known size). */
+    @SuppressWarnings("unchecked")
+    public TrailList(int initialCapacity) {
+        data = (T[]) new Object[Math.max(1, initialCapacity)];
         size = 0;
     }
 
     /** ---------- Ensure Capacity ---------- */
-    @SuppressWarnings("unchecked")
     private void ensureCapacity() {
         if (size < data.length) return;
+        ensureCapacity(data.length * 2);
+    }
 
-        T[] newArr = (T[]) new Object[data.length * 2];
-        System.arraycopy(data, 0, newArr, 0, data.length);
+    /** Grow the backing array so it can hold at least minCapacity entries. */
+    @SuppressWarnings("unchecked")
+    public void ensureCapacity(int minCapacity) {
+        if (minCapacity <= data.length) return;
+
+        T[] newArr = (T[]) new Object[Math.max(minCapacity, data.length * 2)];
+        System.arraycopy(data, 0, newArr, 0, size);
         data = newArr;
     }
 
@@ -34,6 +53,24 @@ public class TrailList<T> implements TrailListInterface<T> {
         data[size++] = newEntry;
     }
 
+    /** ---------- addAll(other TrailList): one arraycopy ---------- */
+    public void addAll(TrailList<? extends T> other) {
+        int n = other.size;
+        if (n == 0) return;
+        ensureCapacity(size + n);
+        System.arraycopy(other.data, 0, data, size, n);
+        size += n;
+    }
+
+    /** ---------- addAll(java collection) ---------- */
+    public void addAll(Collection<? extends T> src) {
+        Object[] arr = src.toArray();
+        if (arr.length == 0) return;
+        ensureCapacity(size + arr.length);
+        System.arraycopy(arr, 0, data, size, arr.length);
+        size += arr.length;
+    }
+
     /** ---------- remove(entry) ---------- */
     @Override
     public boolean remove(T entry) {
@@ -41,18 +78,39 @@ public class TrailList<T> implements TrailListInterface<T> {
 
         for (int i = 0; i < size; i++) {
             if (data[i].equals(entry)) {
-                // shift left
-                for (int j = i; j < size - 1; j++) {
-                    data[j] = data[j + 1];
-                }
-                data[size - 1] = null;
-                size--;
+                removeAt(i);
                 return true;
             }
         }
         return false;
     }
 
+    /** ---------- removeAt(index): shift left with arraycopy ---------- */
+    public T removeAt(int index) {
+        if (index < 0 || index >= size) return null;
+
+        T old = data[index];
+        int tail = size - index - 1;
+        if (tail > 0) System.arraycopy(data, index + 1, data, index, tail);
+        data[--size] = null;
+        return old;
+    }
+
+    /** ---------- removeIf: single compaction pass ---------- */
+    @Override
+    public boolean removeIf(Predicate<? super T> filter) {
+        int w = 0;
+        for (int r = 0; r < size; r++) {
+            T x = data[r];
+            if (!filter.test(x)) data[w++] = x;
+        }
+        if (w == size) return false;
+
+        for (int i = w; i < size; i++) data[i] = null;
+        size = w;
+        return true;
+    }
+
     /** ---------- get(index) ---------- */
     @Override
     public T get(int index) {
@@ -89,14 +147,64 @@ public class TrailList<T> implements TrailListInterface<T> {
         size = 0;
     }
 
-    /** ---------- toList() ---------- */
+    /** ---------- toList(): independent copy ---------- */
     @Override
     public List<T> toList() {
-        List<T> list = new ArrayList<>();
+        List<T> list = new ArrayList<>(size);
         for (int i = 0; i < size; i++) list.add(data[i]);
         return list;
     }
 
+    /**
+     * ---------- view(): read-only live List ----------
+     * No copy is made; later add/remove on this TrailList show through.
+     */
+    @Override
+    public List<T> view() {
+        return new View();
+    }
+
+    private final class View extends AbstractList<T> implements RandomAccess {
+        @Override
+        public T get(int index) {
+            if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index);
+            return data[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /** ---------- iteration straight over the backing array ---------- */
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<>() {
+            private int cursor = 0;
+            private final int expected = size;
+
+            @Override
+            public boolean hasNext() {
+                return cursor < size;
+            }
+
+            @Override
+            public T next() {
+                if (size != expected) throw new ConcurrentModificationException();
+                if (cursor >= size) throw new NoSuchElementException();
+                return data[cursor++];
+            }
+        };
+    }
+
+    @Override
+    public void forEach(Consumer<? super T> action) {
+        T[] arr = data;
+        int n = size;
+        for (int i = 0; i < n; i++) action.accept(arr[i]);
+    }
+
     @Override
     public void sort(Comparator<T> cmp) {
         // simple quicksort on the internal array
@@ -117,7 +225,7 @@ public class TrailList<T> implements TrailListInterface<T> {
                 T tmp = data[i];
                 data[i] = data[j];
                 data[j] = tmp;
-                i++; 
+                i++;
                 j--;
             }
         }
@@ -125,4 +233,4 @@ public class TrailList<T> implements TrailListInterface<T> {
         if (left < j) quickSort(left, j, cmp);
         if (i < right) quickSort(i, right, cmp);
     }
-}
\ No newline at end of file
+}
@@ -1,14 +1,19 @@
 package model.trail;
 
 import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
 
 /** Sequential list structure (ArrayList / LinkedList style). */
-public interface TrailListInterface<T> extends TrailCollectionInterface<T> {
+public interface TrailListInterface<T> extends TrailCollectionInterface<T>, Iterable<T> {
     void add(T newEntry);
     boolean remove(T anEntry);
+    boolean removeIf(Predicate<? super T> filter);
     T get(int index);
     boolean contains(T anEntry);
 	int size();
 	boolean isEmpty();
 	void sort(Comparator<T> cmp);
-}
\ No newline at end of file
+	/** Read-only live view (no copy), unlike toList(). */
+	List<T> view();
+}
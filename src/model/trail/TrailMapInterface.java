@@ -1,6 +1,7 @@
 package model.trail;
 import java.util.Collection;
 import java.util.Set;
+import java.util.function.BiConsumer;
 public interface TrailMapInterface<K,V> extends TrailCollectionInterface<V> {
     void put(K k, V v); 
     V get(K k); 
@@ -9,4 +10,6 @@ public interface TrailMapInterface<K,V> extends TrailCollectionInterface<V> {
 	boolean remove(String string);
 	boolean isEmpty();
 	Collection<V> values();
+	/** One pass over every entry: no hashing, no temporary collections. */
+	void forEachEntry(BiConsumer<? super K, ? super V> action);
 }
\ No newline at end of file
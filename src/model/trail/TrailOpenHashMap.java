@@ -0,0 +1,285 @@
+package model.trail;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * Open-addressing hash map (linear probing) implementing TrailMapInterface.
+ *
+ * Keys and values live in two flat arrays instead of one Node per entry, so a
+ * lookup walks neighbouring slots rather than following chain pointers.
+ * Deletion uses backward-shift, so no tombstones are ever left behind.
+ */
+public class TrailOpenHashMap<K, V> implements TrailMapInterface<K, V> {
+
+    /** ---------- Core Storage ---------- */
+    private Object[] keys;
+    private Object[] vals;
+    private boolean[] used;
+    private int size = 0;
+
+    private static final int INIT_CAP = 16;          // always a power of two
+    private static final double LOAD_FACTOR = 0.6;   // keep probe runs short
+
+    /** ---------- Constructors ---------- */
+    public TrailOpenHashMap() {
+        this(INIT_CAP);
+    }
+
+    /** Pre-size for an expected number of entries (avoids rehash during bulk loads). */
+    public TrailOpenHashMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    private static int tableSizeFor(int expected) {
+        int need = (int) Math.ceil(Math.max(expected, 1) / LOAD_FACTOR);
+        int cap = INIT_CAP;
+        while (cap < need) cap <<= 1;
+        return cap;
+    }
+
+    private void allocate(int cap) {
+        keys = new Object[cap];
+        vals = new Object[cap];
+        used = new boolean[cap];
+    }
+
+    /** ---------- Hash Function ---------- */
+    // spread high bits into the low bits, then mask: never negative
+    private int slot(Object key) {
+        int h = (key == null) ? 0 : key.hashCode();
+        h ^= (h >>> 16);
+        return h & (keys.length - 1);
+    }
+
+    /** Returns the slot holding key, or -1. */
+    private int find(Object key) {
+        int mask = keys.length - 1;
+        int i = slot(key);
+        while (used[i]) {
+            if (Objects.equals(keys[i], key)) return i;
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    /** ---------- Resize ---------- */
+    // re-places raw slots directly; no equals() calls, no size bookkeeping
+    private void resize() {
+        Object[] oldKeys = keys, oldVals = vals;
+        boolean[] oldUsed = used;
+        allocate(oldKeys.length * 2);
+        int mask = keys.length - 1;
+
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (!oldUsed[j]) continue;
+            int i = slot(oldKeys[j]);
+            while (used[i]) i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            vals[i] = oldVals[j];
+            used[i] = true;
+        }
+    }
+
+    /** ---------- ADT: put ---------- */
+    @Override
+    public void put(K key, V value) {
+        if (size + 1 > keys.length * LOAD_FACTOR)
+            resize();
+
+        int mask = keys.length - 1;
+        int i = slot(key);
+        while (used[i]) {
+            if (Objects.equals(keys[i], key)) {
+                vals[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        vals[i] = value;
+        used[i] = true;
+        size++;
+    }
+
+    /** ---------- ADT: get ---------- */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        int i = find(key);
+        return i < 0 ? null : (V) vals[i];
+    }
+
+    /** ---------- containsKey ---------- */
+    @Override
+    public boolean containsKey(K key) {
+        return find(key) >= 0;
+    }
+
+    /** ---------- remove(key) ---------- */
+    @Override
+    public boolean removeByKey(K key) {
+        int i = find(key);
+        if (i < 0) return false;
+        deleteSlot(i);
+        return true;
+    }
+
+    /**
+     * Backward-shift deletion: pull later entries of the same probe run
+     * into the hole so that lookups never stop early.
+     */
+    private void deleteSlot(int hole) {
+        int mask = keys.length - 1;
+        int i = (hole + 1) & mask;
+
+        while (used[i]) {
+            int home = slot(keys[i]);
+            // entry at i may move into hole only if its home is not in (hole, i]
+            boolean canMove = (hole <= i)
+                    ? (home <= hole || home > i)
+                    : (home <= hole && home > i);
+            if (canMove) {
+                keys[hole] = keys[i];
+                vals[hole] = vals[i];
+                hole = i;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[hole] = null;
+        vals[hole] = null;
+        used[hole] = false;
+        size--;
+    }
+
+    /** ---------- remove(value) ---------- */
+    @Override
+    public boolean remove(V item) {
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i] && Objects.equals(vals[i], item)) {
+                deleteSlot(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** ---------- Live iteration ---------- */
+    // scans the slot arrays in place; read-only, not fail-fast
+    private abstract class SlotIterator<E> implements Iterator<E> {
+        private int next = seek(0);
+
+        private int seek(int from) {
+            while (from < used.length && !used[from]) from++;
+            return from;
+        }
+
+        @Override
+        public boolean hasNext() { return next < used.length; }
+
+        int nextSlot() {
+            if (next >= used.length) throw new NoSuchElementException();
+            int i = next;
+            next = seek(i + 1);
+            return i;
+        }
+    }
+
+    /** ---------- ADT: keySet (live view) ---------- */
+    @Override
+    public Set<K> keySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<K> iterator() {
+                return new SlotIterator<>() {
+                    @SuppressWarnings("unchecked")
+                    @Override public K next() { return (K) keys[nextSlot()]; }
+                };
+            }
+            @Override public int size() { return size; }
+            @Override public boolean contains(Object o) { return find(o) >= 0; }
+        };
+    }
+
+    /** ---------- ADT: values (live view) ---------- */
+    @Override
+    public Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new SlotIterator<>() {
+                    @SuppressWarnings("unchecked")
+                    @Override public V next() { return (V) vals[nextSlot()]; }
+                };
+            }
+            @Override public int size() { return size; }
+        };
+    }
+
+    /** ---------- ADT: forEachEntry ---------- */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEachEntry(BiConsumer<? super K, ? super V> action) {
+        Object[] ks = keys, vs = vals;
+        boolean[] us = used;
+        for (int i = 0; i < us.length; i++) {
+            if (us[i]) action.accept((K) ks[i], (V) vs[i]);
+        }
+    }
+
+    /** ---------- ADT: toList ---------- */
+    @Override
+    public List<V> toList() {
+        return new ArrayList<>(values());
+    }
+
+    /** ---------- size ---------- */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /** ---------- isEmpty ---------- */
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** ---------- clear ---------- */
+    @Override
+    public void clear() {
+        allocate(INIT_CAP);
+        size = 0;
+    }
+
+    /** ---------- unsupported add(V) ---------- */
+    @Override
+    public void add(V item) {
+        throw new UnsupportedOperationException("Use put(key, value) instead.");
+    }
+
+    /** ---------- remove(String key) special-case ---------- */
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean remove(String key) {
+        try {
+            return removeByKey((K) key);
+        } catch (ClassCastException e) {
+            return false;
+        }
+    }
+
+    public V getOrDefault(K key, V defaultValue) {
+        V v = get(key);
+        return (v != null) ? v : defaultValue;
+    }
+
+    public V computeIfAbsent(K key, V defaultValue) {
+        V existing = get(key);
+        if (existing == null) {
+            put(key, defaultValue);
+            return defaultValue;
+        }
+        return existing;
+    }
+}
@@ -0,0 +1,29 @@
+package model.trail;
+
+import java.util.List;
+
+/** One page of a sorted listing (see TrailIndexSnapshot.page) */
+public final class TrailPage {
+
+    private final List<Trail> trails;
+    private final String nextPageToken;
+
+    TrailPage(List<Trail> trails, String nextPageToken) {
+        this.trails = List.copyOf(trails);
+        this.nextPageToken = nextPageToken;
+    }
+
+    /** The trails on this page, in sort order */
+    public List<Trail> trails() {
+        return trails;
+    }
+
+    /** Token for the following page, or null on the last page */
+    public String nextPageToken() {
+        return nextPageToken;
+    }
+
+    public boolean hasNext() {
+        return nextPageToken != null;
+    }
+}
@@ -0,0 +1,328 @@
+package model.trail;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * Immutable hash map (hash array mapped trie, CHAMP layout).
+ *
+ * with / without never modify this map: they return a new map that shares
+ * every untouched sub-trie with the old one, copying only the O(log32 n)
+ * nodes on the path to the changed key. Old versions stay valid forever, so
+ * a reader holding one needs no lock and no defensive copy.
+ *
+ * Each node keeps inline entries and child nodes in two bitmaps (5 hash bits
+ * per level). Removal re-inlines single-entry children, so equal maps always
+ * have the same shape.
+ */
+public final class TrailPersistentHashMap<K, V> {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    @SuppressWarnings("rawtypes")
+    private static final TrailPersistentHashMap EMPTY =
+            new TrailPersistentHashMap<>(new BitmapNode(0, 0, new Object[0], new Node[0]), 0);
+
+    private final Node root;
+    private final int size;
+
+    private TrailPersistentHashMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> TrailPersistentHashMap<K, V> empty() {
+        return (TrailPersistentHashMap<K, V>) EMPTY;
+    }
+
+    /** ---------- Hash Function ---------- */
+    private static int hash(Object key) {
+        int h = (key == null) ? 0 : key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /** ---------- Lookup ---------- */
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        return (V) root.find(key, hash(key), 0, null);
+    }
+
+    public V getOrDefault(K key, V defaultValue) {
+        V v = get(key);
+        return (v != null) ? v : defaultValue;
+    }
+
+    public boolean containsKey(K key) {
+        return root.find(key, hash(key), 0, NOT_FOUND) != NOT_FOUND;
+    }
+
+    /** ---------- Updates (return a new map) ---------- */
+    public TrailPersistentHashMap<K, V> with(K key, V value) {
+        Change c = new Change();
+        Node r = root.with(key, value, hash(key), 0, c);
+        if (r == root) return this;
+        return new TrailPersistentHashMap<>(r, c.added ? size + 1 : size);
+    }
+
+    public TrailPersistentHashMap<K, V> without(K key) {
+        Change c = new Change();
+        Node r = root.without(key, hash(key), 0, c);
+        if (!c.removed) return this;
+        return new TrailPersistentHashMap<>(r, size - 1);
+    }
+
+    /** ---------- Iteration ---------- */
+    @SuppressWarnings("unchecked")
+    public void forEachEntry(BiConsumer<? super K, ? super V> action) {
+        root.forEach((BiConsumer<Object, Object>) action);
+    }
+
+    /** Values in unspecified order (copy) */
+    public List<V> toList() {
+        List<V> out = new ArrayList<>(size);
+        forEachEntry((k, v) -> out.add(v));
+        return out;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /* ========================= Trie nodes ========================= */
+
+    private static final Object NOT_FOUND = new Object();
+
+    /** Out-parameter for with / without */
+    private static final class Change {
+        boolean added, removed;
+    }
+
+    private abstract static class Node {
+        abstract Object find(Object key, int hash, int shift, Object missing);
+        abstract Node with(Object key, Object value, int hash, int shift, Change c);
+        abstract Node without(Object key, int hash, int shift, Change c);
+        abstract void forEach(BiConsumer<Object, Object> action);
+
+        /** Number of inline entries / child nodes, used when collapsing */
+        abstract int entryCount();
+        abstract int nodeCount();
+        abstract Object keyAt(int i);
+        abstract Object valAt(int i);
+    }
+
+    private static final class BitmapNode extends Node {
+        final int dataMap;      // bit set: slot holds an inline key/value
+        final int nodeMap;      // bit set: slot holds a child node
+        final Object[] kv;      // k0, v0, k1, v1, ... in bit order
+        final Node[] nodes;     // children in bit order
+
+        BitmapNode(int dataMap, int nodeMap, Object[] kv, Node[] nodes) {
+            this.dataMap = dataMap;
+            this.nodeMap = nodeMap;
+            this.kv = kv;
+            this.nodes = nodes;
+        }
+
+        private static int index(int map, int bit) {
+            return Integer.bitCount(map & (bit - 1));
+        }
+
+        @Override
+        Object find(Object key, int hash, int shift, Object missing) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((dataMap & bit) != 0) {
+                int i = index(dataMap, bit);
+                return Objects.equals(kv[2 * i], key) ? kv[2 * i + 1] : missing;
+            }
+            if ((nodeMap & bit) != 0) {
+                return nodes[index(nodeMap, bit)].find(key, hash, shift + BITS, missing);
+            }
+            return missing;
+        }
+
+        @Override
+        Node with(Object key, Object value, int hash, int shift, Change c) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+
+            if ((dataMap & bit) != 0) {
+                int i = index(dataMap, bit);
+                Object k0 = kv[2 * i];
+                if (Objects.equals(k0, key)) {
+                    if (kv[2 * i + 1] == value) return this;
+                    Object[] nkv = kv.clone();
+                    nkv[2 * i + 1] = value;
+                    return new BitmapNode(dataMap, nodeMap, nkv, nodes);
+                }
+                // two different keys share this slot: push both down one level
+                c.added = true;
+                Node child = merge(k0, kv[2 * i + 1], hash(k0), key, value, hash, shift + BITS);
+                Object[] nkv = removePair(kv, i);
+                Node[] nn = insertNode(nodes, index(nodeMap, bit), child);
+                return new BitmapNode(dataMap ^ bit, nodeMap | bit, nkv, nn);
+            }
+
+            if ((nodeMap & bit) != 0) {
+                int j = index(nodeMap, bit);
+                Node child = nodes[j].with(key, value, hash, shift + BITS, c);
+                if (child == nodes[j]) return this;
+                Node[] nn = nodes.clone();
+                nn[j] = child;
+                return new BitmapNode(dataMap, nodeMap, kv, nn);
+            }
+
+            c.added = true;
+            Object[] nkv = insertPair(kv, index(dataMap, bit), key, value);
+            return new BitmapNode(dataMap | bit, nodeMap, nkv, nodes);
+        }
+
+        @Override
+        Node without(Object key, int hash, int shift, Change c) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+
+            if ((dataMap & bit) != 0) {
+                int i = index(dataMap, bit);
+                if (!Objects.equals(kv[2 * i], key)) return this;
+                c.removed = true;
+                return new BitmapNode(dataMap ^ bit, nodeMap, removePair(kv, i), nodes);
+            }
+
+            if ((nodeMap & bit) != 0) {
+                int j = index(nodeMap, bit);
+                Node child = nodes[j].without(key, hash, shift + BITS, c);
+                if (!c.removed) return this;
+
+                // a child left with one entry and no children is pulled back inline
+                if (child.nodeCount() == 0 && child.entryCount() == 1) {
+                    Object[] nkv = insertPair(kv, index(dataMap, bit), child.keyAt(0), child.valAt(0));
+                    return new BitmapNode(dataMap | bit, nodeMap ^ bit, nkv, removeNode(nodes, j));
+                }
+                Node[] nn = nodes.clone();
+                nn[j] = child;
+                return new BitmapNode(dataMap, nodeMap, kv, nn);
+            }
+            return this;
+        }
+
+        @Override
+        void forEach(BiConsumer<Object, Object> action) {
+            for (int i = 0; i < kv.length; i += 2) action.accept(kv[i], kv[i + 1]);
+            for (Node n : nodes) n.forEach(action);
+        }
+
+        @Override int entryCount() { return kv.length / 2; }
+        @Override int nodeCount() { return nodes.length; }
+        @Override Object keyAt(int i) { return kv[2 * i]; }
+        @Override Object valAt(int i) { return kv[2 * i + 1]; }
+    }
+
+    /** All 32 hash bits used up: keys with identical hashes share a flat array */
+    private static final class CollisionNode extends Node {
+        final int hash;
+        final Object[] kv;
+
+        CollisionNode(int hash, Object[] kv) {
+            this.hash = hash;
+            this.kv = kv;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < kv.length; i += 2) {
+                if (Objects.equals(kv[i], key)) return i / 2;
+            }
+            return -1;
+        }
+
+        @Override
+        Object find(Object key, int hash, int shift, Object missing) {
+            int i = indexOf(key);
+            return i < 0 ? missing : kv[2 * i + 1];
+        }
+
+        @Override
+        Node with(Object key, Object value, int hash, int shift, Change c) {
+            int i = indexOf(key);
+            if (i >= 0) {
+                if (kv[2 * i + 1] == value) return this;
+                Object[] nkv = kv.clone();
+                nkv[2 * i + 1] = value;
+                return new CollisionNode(this.hash, nkv);
+            }
+            c.added = true;
+            return new CollisionNode(this.hash, insertPair(kv, kv.length / 2, key, value));
+        }
+
+        @Override
+        Node without(Object key, int hash, int shift, Change c) {
+            int i = indexOf(key);
+            if (i < 0) return this;
+            c.removed = true;
+            return new CollisionNode(this.hash, removePair(kv, i));
+        }
+
+        @Override
+        void forEach(BiConsumer<Object, Object> action) {
+            for (int i = 0; i < kv.length; i += 2) action.accept(kv[i], kv[i + 1]);
+        }
+
+        @Override int entryCount() { return kv.length / 2; }
+        @Override int nodeCount() { return 0; }
+        @Override Object keyAt(int i) { return kv[2 * i]; }
+        @Override Object valAt(int i) { return kv[2 * i + 1]; }
+    }
+
+    /** Build the smallest sub-trie holding two distinct keys */
+    private static Node merge(Object k1, Object v1, int h1, Object k2, Object v2, int h2, int shift) {
+        if (shift >= 32) {
+            return new CollisionNode(h1, new Object[] { k1, v1, k2, v2 });
+        }
+        int b1 = (h1 >>> shift) & MASK;
+        int b2 = (h2 >>> shift) & MASK;
+        if (b1 == b2) {
+            Node child = merge(k1, v1, h1, k2, v2, h2, shift + BITS);
+            return new BitmapNode(0, 1 << b1, new Object[0], new Node[] { child });
+        }
+        Object[] kv = (b1 < b2)
+                ? new Object[] { k1, v1, k2, v2 }
+                : new Object[] { k2, v2, k1, v1 };
+        return new BitmapNode((1 << b1) | (1 << b2), 0, kv, new Node[0]);
+    }
+
+    /* ---------- array copy helpers ---------- */
+
+    private static Object[] insertPair(Object[] kv, int i, Object k, Object v) {
+        Object[] out = new Object[kv.length + 2];
+        System.arraycopy(kv, 0, out, 0, 2 * i);
+        out[2 * i] = k;
+        out[2 * i + 1] = v;
+        System.arraycopy(kv, 2 * i, out, 2 * i + 2, kv.length - 2 * i);
+        return out;
+    }
+
+    private static Object[] removePair(Object[] kv, int i) {
+        Object[] out = new Object[kv.length - 2];
+        System.arraycopy(kv, 0, out, 0, 2 * i);
+        System.arraycopy(kv, 2 * i + 2, out, 2 * i, kv.length - 2 * i - 2);
+        return out;
+    }
+
+    private static Node[] insertNode(Node[] nodes, int j, Node n) {
+        Node[] out = new Node[nodes.length + 1];
+        System.arraycopy(nodes, 0, out, 0, j);
+        out[j] = n;
+        System.arraycopy(nodes, j, out, j + 1, nodes.length - j);
+        return out;
+    }
+
+    private static Node[] removeNode(Node[] nodes, int j) {
+        Node[] out = new Node[nodes.length - 1];
+        System.arraycopy(nodes, 0, out, 0, j);
+        System.arraycopy(nodes, j + 1, out, j, nodes.length - j - 1);
+        return out;
+    }
+}
@@ -0,0 +1,292 @@
+package model.trail;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+
+/**
+ * Immutable sorted map backed by a path-copying AVL tree.
+ *
+ * with / without return a new tree in O(log n): only the nodes on the path
+ * to the changed key are copied, everything else is shared with the previous
+ * version. Nodes also store their subtree size, so values() is a List view
+ * with O(log n) positional get and no copying.
+ *
+ * Unlike TrailTreeMap this is a plain map (one value per key); callers that
+ * need a multimap store a TrailPersistentTreeMap as the value.
+ */
+public final class TrailPersistentTreeMap<K extends Comparable<K>, V> {
+
+    private static final class Node<K, V> {
+        final K key;
+        final V value;
+        final Node<K, V> left, right;
+        final int height;
+        final int size;     // nodes in this subtree
+
+        Node(K key, V value, Node<K, V> left, Node<K, V> right) {
+            this.key = key;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.height = 1 + Math.max(height(left), height(right));
+            this.size = 1 + size(left) + size(right);
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static final TrailPersistentTreeMap EMPTY = new TrailPersistentTreeMap<>(null);
+
+    private final Node<K, V> root;
+
+    private TrailPersistentTreeMap(Node<K, V> root) {
+        this.root = root;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K extends Comparable<K>, V> TrailPersistentTreeMap<K, V> empty() {
+        return (TrailPersistentTreeMap<K, V>) EMPTY;
+    }
+
+    /* ========================= AVL helpers ========================= */
+
+    private static int height(Node<?, ?> n) { return n == null ? 0 : n.height; }
+
+    private static int size(Node<?, ?> n) { return n == null ? 0 : n.size; }
+
+    // every helper builds new nodes; nothing reachable from an old root changes
+    private static <K, V> Node<K, V> balance(K key, V value, Node<K, V> l, Node<K, V> r) {
+        int bf = height(l) - height(r);
+
+        if (bf > 1) {
+            if (height(l.left) < height(l.right)) {
+                Node<K, V> lr = l.right;
+                return new Node<>(lr.key, lr.value,
+                        new Node<>(l.key, l.value, l.left, lr.left),
+                        new Node<>(key, value, lr.right, r));
+            }
+            return new Node<>(l.key, l.value, l.left, new Node<>(key, value, l.right, r));
+        }
+        if (bf < -1) {
+            if (height(r.right) < height(r.left)) {
+                Node<K, V> rl = r.left;
+                return new Node<>(rl.key, rl.value,
+                        new Node<>(key, value, l, rl.left),
+                        new Node<>(r.key, r.value, rl.right, r.right));
+            }
+            return new Node<>(r.key, r.value, new Node<>(key, value, l, r.left), r.right);
+        }
+        return new Node<>(key, value, l, r);
+    }
+
+    /* ========================= Updates ========================= */
+
+    /** New map with key mapped to value (replaces any previous value) */
+    public TrailPersistentTreeMap<K, V> with(K key, V value) {
+        Node<K, V> r = insert(root, key, value);
+        return r == root ? this : new TrailPersistentTreeMap<>(r);
+    }
+
+    private static <K extends Comparable<K>, V> Node<K, V> insert(Node<K, V> n, K key, V value) {
+        if (n == null) return new Node<>(key, value, null, null);
+
+        int cmp = key.compareTo(n.key);
+        if (cmp < 0) {
+            Node<K, V> l = insert(n.left, key, value);
+            return l == n.left ? n : balance(n.key, n.value, l, n.right);
+        }
+        if (cmp > 0) {
+            Node<K, V> r = insert(n.right, key, value);
+            return r == n.right ? n : balance(n.key, n.value, n.left, r);
+        }
+        return n.value == value ? n : new Node<>(key, value, n.left, n.right);
+    }
+
+    /** New map without key (this map if key is absent) */
+    public TrailPersistentTreeMap<K, V> without(K key) {
+        Node<K, V> r = delete(root, key);
+        return r == root ? this : new TrailPersistentTreeMap<>(r);
+    }
+
+    private static <K extends Comparable<K>, V> Node<K, V> delete(Node<K, V> n, K key) {
+        if (n == null) return null;
+
+        int cmp = key.compareTo(n.key);
+        if (cmp < 0) {
+            Node<K, V> l = delete(n.left, key);
+            return l == n.left ? n : balance(n.key, n.value, l, n.right);
+        }
+        if (cmp > 0) {
+            Node<K, V> r = delete(n.right, key);
+            return r == n.right ? n : balance(n.key, n.value, n.left, r);
+        }
+
+        if (n.left == null) return n.right;
+        if (n.right == null) return n.left;
+
+        // two children: the in-order successor takes this node's place
+        Node<K, V> succ = n.right;
+        while (succ.left != null) succ = succ.left;
+        return balance(succ.key, succ.value, n.left, deleteMin(n.right));
+    }
+
+    private static <K, V> Node<K, V> deleteMin(Node<K, V> n) {
+        if (n.left == null) return n.right;
+        return balance(n.key, n.value, deleteMin(n.left), n.right);
+    }
+
+    /* ========================= Lookup ========================= */
+
+    private Node<K, V> findNode(K key) {
+        Node<K, V> n = root;
+        while (n != null) {
+            int cmp = key.compareTo(n.key);
+            if (cmp == 0) return n;
+            n = (cmp < 0) ? n.left : n.right;
+        }
+        return null;
+    }
+
+    public V get(K key) {
+        Node<K, V> n = findNode(key);
+        return n == null ? null : n.value;
+    }
+
+    public V getOrDefault(K key, V defaultValue) {
+        V v = get(key);
+        return (v != null) ? v : defaultValue;
+    }
+
+    public boolean containsKey(K key) {
+        return findNode(key) != null;
+    }
+
+    /** Smallest key; throws if the map is empty */
+    public K firstKey() {
+        if (root == null) throw new NoSuchElementException();
+        Node<K, V> n = root;
+        while (n.left != null) n = n.left;
+        return n.key;
+    }
+
+    /** Largest key; throws if the map is empty */
+    public K lastKey() {
+        if (root == null) throw new NoSuchElementException();
+        Node<K, V> n = root;
+        while (n.right != null) n = n.right;
+        return n.key;
+    }
+
+    /** Value at in-order position index (0 = smallest key), O(log n) */
+    public V valueAt(int index) {
+        if (index < 0 || index >= size())
+            throw new IndexOutOfBoundsException("Index: " + index);
+        Node<K, V> n = root;
+        while (true) {
+            int ls = size(n.left);
+            if (index < ls) {
+                n = n.left;
+            } else if (index == ls) {
+                return n.value;
+            } else {
+                index -= ls + 1;
+                n = n.right;
+            }
+        }
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    /* ========================= Traversal ========================= */
+
+    /** In-order walk over every entry */
+    public void forEachEntry(BiConsumer<? super K, ? super V> action) {
+        forEachInRange(null, null, action);
+    }
+
+    /**
+     * In-order walk over entries with lo &lt;= key &lt;= hi; a null bound is
+     * unbounded. Subtrees entirely outside the range are never visited.
+     */
+    public void forEachInRange(K lo, K hi, BiConsumer<? super K, ? super V> action) {
+        walk(lo, hi, (k, v) -> {
+            action.accept(k, v);
+            return true;
+        });
+    }
+
+    /**
+     * In-order walk over entries with key &gt;= lo (null = from the start)
+     * that stops as soon as action returns false, so only the entries
+     * actually consumed are visited.
+     */
+    public void forEachFrom(K lo, BiPredicate<? super K, ? super V> action) {
+        walk(lo, null, action);
+    }
+
+    private void walk(K lo, K hi, BiPredicate<? super K, ? super V> action) {
+        Deque<Node<K, V>> stack = new ArrayDeque<>();
+        Node<K, V> n = root;
+        while (true) {
+            while (n != null) {
+                if (lo != null && n.key.compareTo(lo) < 0) {
+                    n = n.right;         // n and its left subtree are below the range
+                } else {
+                    stack.push(n);
+                    n = n.left;
+                }
+            }
+            if (stack.isEmpty()) return;
+
+            n = stack.pop();
+            if (hi != null && n.key.compareTo(hi) > 0) return;
+            if (!action.test(n.key, n.value)) return;
+            n = n.right;
+        }
+    }
+
+    /**
+     * Values in key order as an immutable List view (no copy).
+     * get(i) is O(log n); iteration is O(1) amortised per element.
+     */
+    public List<V> values() {
+        return new AbstractList<>() {
+            @Override
+            public V get(int index) {
+                return valueAt(index);
+            }
+
+            @Override
+            public int size() {
+                return TrailPersistentTreeMap.this.size();
+            }
+
+            @Override
+            public Iterator<V> iterator() {
+                Deque<Node<K, V>> stack = new ArrayDeque<>();
+                for (Node<K, V> c = root; c != null; c = c.left) stack.push(c);
+
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return !stack.isEmpty();
+                    }
+
+                    @Override
+                    public V next() {
+                        if (stack.isEmpty()) throw new NoSuchElementException();
+                        Node<K, V> n = stack.pop();
+                        for (Node<K, V> c = n.right; c != null; c = c.left) stack.push(c);
+                        return n.value;
+                    }
+                };
+            }
+        };
+    }
+}
@@ -0,0 +1,110 @@
+package model.trail;
+
+import java.util.*;
+
+/**
+ * Criteria for TrailIndexSnapshot.plan().
+ *
+ * Every setter narrows the result; anything left unset is not checked.
+ * Flag arguments follow the repo's tri-state convention (null = don't care),
+ * range bounds are inclusive and a null bound is open.
+ */
+public final class TrailQuery {
+
+    Difficulty difficulty;
+    Difficulty maxDifficulty;
+    String topic;
+    final Map<String, Boolean> features = new LinkedHashMap<>();
+    Double minLength, maxLength;
+    Double minVisitHours, maxVisitHours;
+    Double minElevation, maxElevation;
+
+    public TrailQuery difficulty(Difficulty d) {
+        difficulty = d;
+        return this;
+    }
+
+    /** rank ≤ d.rank */
+    public TrailQuery maxDifficulty(Difficulty d) {
+        maxDifficulty = d;
+        return this;
+    }
+
+    public TrailQuery topic(String t) {
+        topic = t;
+        return this;
+    }
+
+    public TrailQuery topic(Topic t) {
+        return topic(t == null ? null : t.name());
+    }
+
+    /** feature: one of the TrailIndex feature keys ("pet_friendly", "camping", ...) */
+    public TrailQuery feature(String feature, Boolean value) {
+        if (value == null) features.remove(feature);
+        else features.put(feature, value);
+        return this;
+    }
+
+    public TrailQuery lengthBetween(Double min, Double max) {
+        minLength = min;
+        maxLength = max;
+        return this;
+    }
+
+    public TrailQuery visitHoursBetween(Double min, Double max) {
+        minVisitHours = min;
+        maxVisitHours = max;
+        return this;
+    }
+
+    public TrailQuery elevationBetween(Double min, Double max) {
+        minElevation = min;
+        maxElevation = max;
+        return this;
+    }
+
+    /** Independent copy (later setters on either do not affect the other) */
+    public TrailQuery copy() {
+        TrailQuery c = new TrailQuery();
+        c.difficulty = difficulty;
+        c.maxDifficulty = maxDifficulty;
+        c.topic = topic;
+        c.features.putAll(features);
+        c.minLength = minLength;
+        c.maxLength = maxLength;
+        c.minVisitHours = minVisitHours;
+        c.maxVisitHours = maxVisitHours;
+        c.minElevation = minElevation;
+        c.maxElevation = maxElevation;
+        return c;
+    }
+
+    /**
+     * True if every trail matching this query also matches broader, judged
+     * from the criteria alone (conservative: false when unsure). Lets a
+     * caller refine broader's result instead of running this query afresh.
+     */
+    public boolean narrows(TrailQuery broader) {
+        if (broader.difficulty != null && broader.difficulty != difficulty) return false;
+        if (broader.maxDifficulty != null) {
+            int cap = Math.min(difficulty == null ? Integer.MAX_VALUE : difficulty.rank(),
+                               maxDifficulty == null ? Integer.MAX_VALUE : maxDifficulty.rank());
+            if (cap > broader.maxDifficulty.rank()) return false;
+        }
+        if (broader.topic != null && (topic == null || !topic.equalsIgnoreCase(broader.topic))) return false;
+        for (Map.Entry<String, Boolean> f : broader.features.entrySet()) {
+            if (!f.getValue().equals(features.get(f.getKey()))) return false;
+        }
+        return inside(minLength, maxLength, broader.minLength, broader.maxLength)
+                && inside(minVisitHours, maxVisitHours, broader.minVisitHours, broader.maxVisitHours)
+                && inside(minElevation, maxElevation, broader.minElevation, broader.maxElevation);
+    }
+
+    // [min, max] within [outerMin, outerMax]; null bounds are open
+    private static boolean inside(Double min, Double max, Double outerMin, Double outerMax) {
+        boolean lo = outerMin == null || (min != null && min >= outerMin);
+        boolean hi = outerMax == null || (max != null && max <= outerMax);
+        return lo && hi;
+    }
+}
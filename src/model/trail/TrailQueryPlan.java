@@ -0,0 +1,166 @@
+package model.trail;
+
+import java.util.*;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+
+/**
+ * Execution plan for a TrailQuery against one TrailIndexSnapshot.
+ *
+ * Planning uses only cheap statistics: posting-list cardinalities (exact)
+ * and the range indexes' histograms (estimates). Steps run from the most
+ * selective to the least:
+ *  - POSTING / RANGE steps AND their ordinals into the running result; two
+ *    or more slider ranges arrive as one RANGE, a TrailKdTree box query;
+ *  - a RANGE whose estimate is larger than the rows still alive becomes a
+ *    PROBE: the survivors are checked against the column instead of
+ *    materializing the whole range;
+ *  - EXCLUDE steps (feature = false) subtract a posting list and run last;
+ *  - ALL (every live row) only seeds a query made of exclusions alone.
+ * A step known to match nothing makes the whole plan empty before any work,
+ * and execution stops as soon as the running result is empty.
+ *
+ * steps() and toString() expose the chosen order, access paths and estimates.
+ */
+public final class TrailQueryPlan {
+
+    public enum Access { POSTING, RANGE, PROBE, EXCLUDE, ALL }
+
+    /** One intersection step; estimate is the step's own row count, not the running total */
+    public static final class Step {
+        private final String label;
+        private final Access access;
+        private final int estimate;
+        private final Supplier<TrailBitmap> rows;   // POSTING, RANGE, EXCLUDE, ALL
+        private final IntPredicate probe;           // RANGE / PROBE: does one row satisfy the step?
+
+        private Step(String label, Access access, int estimate, Supplier<TrailBitmap> rows, IntPredicate probe) {
+            this.label = label;
+            this.access = access;
+            this.estimate = estimate;
+            this.rows = rows;
+            this.probe = probe;
+        }
+
+        static Step posting(String label, TrailBitmap rows) {
+            return new Step(label, Access.POSTING, rows.cardinality(), () -> rows, null);
+        }
+
+        static Step exclude(String label, TrailBitmap rows, int liveRows) {
+            return new Step(label, Access.EXCLUDE, liveRows - rows.cardinality(), () -> rows, null);
+        }
+
+        /** Range over one or more columns; probe checks a single row against the same bounds */
+        static Step range(String label, int estimate, Supplier<TrailBitmap> rows, IntPredicate probe) {
+            return new Step(label, Access.RANGE, estimate, rows, probe);
+        }
+
+        static Step all(Supplier<TrailBitmap> rows, int liveRows) {
+            return new Step("all rows", Access.ALL, liveRows, rows, null);
+        }
+
+        private Step as(Access a) {
+            return new Step(label, a, estimate, rows, probe);
+        }
+
+        public String label() { return label; }
+        public Access access() { return access; }
+        public int estimate() { return estimate; }
+        IntPredicate probe() { return probe; }
+
+        TrailBitmap apply(TrailBitmap current) {
+            return switch (access) {
+                case POSTING, RANGE -> current == null ? rows.get() : current.and(rows.get());
+                case EXCLUDE -> current.andNot(rows.get());
+                case ALL -> rows.get();
+                case PROBE -> {
+                    TrailBitmap.Builder out = new TrailBitmap.Builder();
+                    current.forEach(r -> {
+                        if (probe.test(r)) out.add(r);
+                    });
+                    yield out.build();
+                }
+            };
+        }
+
+        @Override
+        public String toString() {
+            return access + " " + label + " ~" + estimate;
+        }
+    }
+
+    private final List<Step> steps;
+    private final int estimatedRows;
+    private final boolean knownEmpty;     // decided at plan time, execute() does no work
+
+    private TrailQueryPlan(List<Step> steps, int estimatedRows, boolean knownEmpty) {
+        this.steps = List.copyOf(steps);
+        this.estimatedRows = estimatedRows;
+        this.knownEmpty = knownEmpty;
+    }
+
+    // ─────── Planning ───────
+    static TrailQueryPlan plan(List<Step> candidates, Supplier<TrailBitmap> allRows, int liveRows) {
+        List<Step> lead = new ArrayList<>();
+        List<Step> excludes = new ArrayList<>();
+        for (Step s : candidates) {
+            if (s.estimate == 0 && s.access != Access.EXCLUDE) {
+                return new TrailQueryPlan(List.of(s), 0, true);  // nothing can match
+            }
+            (s.access == Access.EXCLUDE ? excludes : lead).add(s);
+        }
+        lead.sort(Comparator.comparingInt(Step::estimate));
+        excludes.sort(Comparator.comparingInt(Step::estimate));
+        if (lead.isEmpty()) lead.add(Step.all(allRows, liveRows));
+
+        // running estimate assumes the criteria are independent
+        List<Step> ordered = new ArrayList<>();
+        double running = liveRows;
+        for (Step s : lead) {
+            boolean probe = !ordered.isEmpty() && s.access == Access.RANGE && running < s.estimate;
+            ordered.add(probe ? s.as(Access.PROBE) : s);
+            running = ordered.size() == 1 ? s.estimate : running * s.estimate / Math.max(1, liveRows);
+        }
+        for (Step s : excludes) {
+            ordered.add(s);
+            running = running * s.estimate / Math.max(1, liveRows);
+        }
+        return new TrailQueryPlan(ordered, (int) Math.round(running), false);
+    }
+
+    // ─────── Execution ───────
+    /** Run the plan; stops at the first empty intermediate result */
+    public TrailBitmap execute() {
+        if (knownEmpty) return TrailBitmap.EMPTY;
+        TrailBitmap rows = null;
+        for (Step s : steps) {
+            rows = s.apply(rows);
+            if (rows.isEmpty()) break;
+        }
+        return rows;
+    }
+
+    // ─────── Inspection ───────
+    public List<Step> steps() {
+        return steps;
+    }
+
+    /** True when a step was already known to match nothing at plan time */
+    public boolean isKnownEmpty() {
+        return knownEmpty;
+    }
+
+    /** Expected result size under the independence assumption */
+    public int estimatedRows() {
+        return estimatedRows;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("plan ~").append(estimatedRows).append(" rows");
+        for (int i = 0; i < steps.size(); i++) {
+            sb.append("\n  ").append(i + 1).append(". ").append(steps.get(i));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,177 @@
+package model.trail;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Immutable range index over one numeric trail attribute.
+ *
+ * Distinct values are kept in a TrailPersistentTreeMap, each mapped to the
+ * TrailBitmap of trail ordinals having that value. between(min, max)
+ * descends to min in O(log n), walks only the values inside the range and
+ * returns the matching ordinals as a bitmap, ready to be ANDed with posting
+ * lists or other ranges.
+ *
+ * For query planning, estimate(min, max) answers from a small equi-depth
+ * histogram (built once per index version) instead of walking the tree.
+ */
+public final class TrailRangeIndex {
+
+    public static final TrailRangeIndex EMPTY =
+            new TrailRangeIndex(TrailPersistentTreeMap.empty(), 0);
+
+    private final TrailPersistentTreeMap<Double, TrailBitmap> byValue;
+    private final int rows;
+    private volatile Histogram histogram;     // lazy; two racing builds are equal
+
+    private TrailRangeIndex(TrailPersistentTreeMap<Double, TrailBitmap> byValue, int rows) {
+        this.byValue = byValue;
+        this.rows = rows;
+    }
+
+    // ─────── Updates (return a new index) ───────
+    public TrailRangeIndex with(double value, int row) {
+        TrailBitmap b = byValue.getOrDefault(value, TrailBitmap.EMPTY);
+        TrailBitmap nb = b.with(row);
+        return nb == b ? this : new TrailRangeIndex(byValue.with(value, nb), rows + 1);
+    }
+
+    /**
+     * Add a batch: values[i] belongs to ordinal firstRow + i. Each distinct
+     * value's bitmap is rebuilt once, not once per row.
+     */
+    public TrailRangeIndex withAll(double[] values, int firstRow) {
+        if (values.length == 0) return this;
+        TrailOpenHashMap<Double, TrailBitmap.Builder> added = new TrailOpenHashMap<>();
+        for (int i = 0; i < values.length; i++) {
+            added.computeIfAbsent(values[i], new TrailBitmap.Builder()).add(firstRow + i);
+        }
+        TrailPersistentTreeMap<Double, TrailBitmap> next = byValue;
+        for (Double v : added.keySet()) {
+            next = next.with(v, next.getOrDefault(v, TrailBitmap.EMPTY).or(added.get(v).build()));
+        }
+        return new TrailRangeIndex(next, rows + values.length);
+    }
+
+    /**
+     * Purge a batch of ordinals; valueOf gives the value each was indexed
+     * under. Each touched value's bitmap is rebuilt once, and values with no
+     * rows left are dropped.
+     */
+    public TrailRangeIndex withoutRows(TrailBitmap removed, IntToDoubleFunction valueOf) {
+        if (removed.isEmpty()) return this;
+        TrailOpenHashMap<Double, TrailBitmap.Builder> byVal = new TrailOpenHashMap<>();
+        removed.forEach(row -> byVal.computeIfAbsent(valueOf.applyAsDouble(row), new TrailBitmap.Builder()).add(row));
+
+        TrailPersistentTreeMap<Double, TrailBitmap> next = byValue;
+        int n = rows;
+        for (Double v : byVal.keySet()) {
+            TrailBitmap b = next.get(v);
+            if (b == null) continue;
+            TrailBitmap nb = b.andNot(byVal.get(v).build());
+            n -= b.cardinality() - nb.cardinality();
+            next = nb.isEmpty() ? next.without(v) : next.with(v, nb);
+        }
+        return new TrailRangeIndex(next, n);
+    }
+
+    // ─────── Range queries ───────
+    /** Ordinals with min &lt;= value &lt;= max; a null bound is open */
+    public TrailBitmap between(Double min, Double max) {
+        // one tree walk collects the per-value bitmaps, one k-way OR merges them
+        List<TrailBitmap> parts = new ArrayList<>();
+        byValue.forEachInRange(min, max, (v, b) -> parts.add(b));
+        return TrailBitmap.orAll(parts);
+    }
+
+    /** Number of ordinals in [min, max] without building the bitmap */
+    public int count(Double min, Double max) {
+        int[] n = { 0 };
+        byValue.forEachInRange(min, max, (v, b) -> n[0] += b.cardinality());
+        return n[0];
+    }
+
+    /** Ascending walk over (value, ordinals) for values in [min, max] */
+    public void forEachBetween(Double min, Double max, BiConsumer<Double, TrailBitmap> action) {
+        byValue.forEachInRange(min, max, action);
+    }
+
+    /** Ascending walk over (value, ordinals) for values &gt;= min; stops when action returns false */
+    public void forEachFrom(Double min, BiPredicate<Double, TrailBitmap> action) {
+        byValue.forEachFrom(min, action);
+    }
+
+    // ─────── Statistics ───────
+    private static final int BUCKETS = 32;
+
+    /**
+     * Estimated number of ordinals in [min, max]. Buckets fully inside the
+     * range count exactly; a partially covered bucket contributes its rows
+     * in proportion to the covered width, but at least one distinct value's
+     * share.
+     */
+    public int estimate(Double min, Double max) {
+        Histogram h = histogram;
+        if (h == null) histogram = h = new Histogram(byValue, rows);
+
+        double lo = (min == null) ? Double.NEGATIVE_INFINITY : min;
+        double hi = (max == null) ? Double.POSITIVE_INFINITY : max;
+        double est = 0;
+        for (int b = 0; b < h.size; b++) {
+            double bLo = h.lo[b], bHi = h.hi[b];
+            if (bHi < lo || bLo > hi) continue;
+            if (bLo >= lo && bHi <= hi) {
+                est += h.rows[b];
+                continue;
+            }
+            double covered = (Math.min(hi, bHi) - Math.max(lo, bLo)) / (bHi - bLo);
+            est += h.rows[b] * Math.max(covered, 1.0 / h.distinct[b]);
+        }
+        return (int) Math.min(rows, Math.round(est));
+    }
+
+    private static final class Histogram {
+        final double[] lo = new double[BUCKETS], hi = new double[BUCKETS];
+        final int[] rows = new int[BUCKETS], distinct = new int[BUCKETS];
+        final int size;
+
+        // one in-order pass; a bucket closes once it holds ~rows / BUCKETS ordinals
+        Histogram(TrailPersistentTreeMap<Double, TrailBitmap> byValue, int total) {
+            int depth = Math.max(1, (total + BUCKETS - 1) / BUCKETS);
+            int[] n = { 0 };
+            byValue.forEachEntry((v, b) -> {
+                if (n[0] == 0 || rows[n[0] - 1] >= depth && n[0] < BUCKETS) {
+                    lo[n[0]] = v;
+                    n[0]++;
+                }
+                int i = n[0] - 1;
+                hi[i] = v;
+                rows[i] += b.cardinality();
+                distinct[i]++;
+            });
+            size = n[0];
+        }
+    }
+
+    /** Number of indexed ordinals */
+    public int size() {
+        return rows;
+    }
+
+    /** Number of distinct values */
+    public int distinctValues() {
+        return byValue.size();
+    }
+
+    /** Smallest indexed value, or null when empty */
+    public Double min() {
+        return byValue.isEmpty() ? null : byValue.firstKey();
+    }
+
+    /** Largest indexed value, or null when empty */
+    public Double max() {
+        return byValue.isEmpty() ? null : byValue.lastKey();
+    }
+}
@@ -0,0 +1,82 @@
+package model.trail;
+
+import java.util.*;
+
+/**
+ * Interning registry that gives every distinct trail (by equals: name +
+ * park + state + zipcode) a dense int id: 0, 1, 2, ... in first-seen order.
+ *
+ * The id is cached on the Trail itself, so after interning, equals, joins
+ * and id lookups never touch the four strings again; byId is one array
+ * read. The catalog is loaded in file order at startup, which keeps ids
+ * stable from run to run as long as trailsData.json only grows at the end.
+ *
+ * Entries are never released: an id stays bound to its trail for the life
+ * of the process, so removing a trail from an index does not free it, and
+ * repeated add/remove cycles of distinct trails keep growing the registry.
+ *
+ * intern is serialised; byId and idOf of an already-interned trail are
+ * lock-free (the id array is published through a volatile write).
+ */
+public final class TrailRegistry {
+
+    private static final TrailRegistry GLOBAL = new TrailRegistry();
+
+    /** The registry TrailIndex uses; one per process so ids never clash */
+    public static TrailRegistry global() {
+        return GLOBAL;
+    }
+
+    private final TrailOpenHashMap<Trail, Integer> ids = new TrailOpenHashMap<>();
+    private volatile Trail[] byId = new Trail[64];
+    private volatile int size;
+
+    // ─────── Interning ───────
+    /** Id of t, assigning the next dense id if no equal trail was seen before */
+    public int intern(Trail t) {
+        int id = t.getId();
+        if (id >= 0) return id;
+
+        synchronized (this) {
+            Integer known = ids.get(t);
+            if (known != null) {
+                t.assignId(known);
+                return known;
+            }
+            id = size;
+            Trail[] a = byId;
+            if (id == a.length) a = Arrays.copyOf(a, id * 2);
+            a[id] = t;
+            ids.put(t, id);
+            byId = a;
+            size = id + 1;              // publishes a[id]
+            t.assignId(id);
+            return id;
+        }
+    }
+
+    /** Id of t, or -1 if no equal trail was ever interned (assigns nothing) */
+    public int idOf(Trail t) {
+        int id = t.getId();
+        if (id >= 0) return id;
+
+        synchronized (this) {
+            Integer known = ids.get(t);
+            if (known == null) return -1;
+            t.assignId(known);
+            return known;
+        }
+    }
+
+    // ─────── Lookup ───────
+    /** The first trail interned under id, or null */
+    public Trail byId(int id) {
+        int n = size;
+        Trail[] a = byId;
+        return (id >= 0 && id < n) ? a[id] : null;
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,87 @@
+package model.trail;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Sort order for TrailIndexSnapshot.page(): ascending by one key, ties by
+ * ordinal (insertion order). Each order is backed by a sorted index, so a
+ * page is read off the index instead of sorting the matches:
+ *  - LENGTH, ELEVATION: the range index's value tree
+ *  - DIFFICULTY: the difficulty posting lists, by rank
+ *  - distanceFrom(lat, lon): the geo grid, ring by ring outwards
+ *
+ * A page token is the (key, ordinal) of the last trail handed out, tagged
+ * with its sort order (and origin, for distance); a token from any other
+ * order is rejected. It does not depend on offsets, so it stays valid
+ * across writes and compactions (ordinals are never reused); trails added
+ * behind the cursor are skipped.
+ */
+public final class TrailSort {
+
+    enum Key { LENGTH, DIFFICULTY, ELEVATION, DISTANCE }
+
+    public static final TrailSort LENGTH = new TrailSort(Key.LENGTH, 0, 0);
+    public static final TrailSort DIFFICULTY = new TrailSort(Key.DIFFICULTY, 0, 0);
+    public static final TrailSort ELEVATION = new TrailSort(Key.ELEVATION, 0, 0);
+
+    /** Nearest first, by great-circle distance from (lat, lon) */
+    public static TrailSort distanceFrom(double lat, double lon) {
+        return new TrailSort(Key.DISTANCE, lat, lon);
+    }
+
+    final Key key;
+    final double lat, lon;      // DISTANCE only
+
+    private TrailSort(Key key, double lat, double lon) {
+        this.key = key;
+        this.lat = lat;
+        this.lon = lon;
+    }
+
+    // ─────── Page tokens ───────
+    /** Position after (sortKey, row) in this order */
+    static final class Cursor {
+        final double sortKey;
+        final int row;
+
+        Cursor(double sortKey, int row) {
+            this.sortKey = sortKey;
+            this.row = row;
+        }
+    }
+
+    static final Cursor START = new Cursor(Double.NEGATIVE_INFINITY, -1);
+
+    String encode(double sortKey, int row) {
+        String raw = tag() + ":" + hex(sortKey) + ":" + row;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    Cursor decode(String token) {
+        if (token == null) return START;
+        try {
+            String[] p = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(":");
+            if (p.length != 3 || !p[0].equals(tag())) {
+                throw new IllegalArgumentException("page token belongs to another sort order");
+            }
+            return new Cursor(Double.longBitsToDouble(Long.parseUnsignedLong(p[1], 16)), Integer.parseInt(p[2]));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("bad page token: " + token, e);
+        }
+    }
+
+    // the whole order: key name, plus the origin for DISTANCE
+    private String tag() {
+        return key == Key.DISTANCE ? key.name() + "@" + hex(lat) + "," + hex(lon) : key.name();
+    }
+
+    private static String hex(double v) {
+        return Long.toHexString(Double.doubleToRawLongBits(v));
+    }
+
+    @Override
+    public String toString() {
+        return key == Key.DISTANCE ? "DISTANCE from (" + lat + ", " + lon + ")" : key.name();
+    }
+}
@@ -8,9 +8,11 @@ import java.util.SortedMap;
 public interface TrailTreeInterface<K extends Comparable<K>, V> extends TrailCollectionInterface<V> {
     void put(K key, V value);
     V get(K key);
+    boolean removeByKey(K key);
+    boolean remove(K key, V value);
     List<V> getRange(K min, K max);
     SortedMap<K, List<V>> headMap(K maxKey);
     SortedMap<K, List<V>> tailMap(K minKey);
 	boolean isEmpty();
 	Set<K> keySet();
-}
\ No newline at end of file
+}
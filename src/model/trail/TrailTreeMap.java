@@ -2,12 +2,24 @@ package model.trail;
 
 import java.util.*;
 
+/**
+ * Ordered multimap backed by an AVL tree (key -> list of values).
+ *
+ * - put / get / removeByKey are O(log n) whatever order keys arrive in
+ *   (sorted exports no longer degrade the tree into a linked list).
+ * - Range scans, toList and keySet walk the tree iteratively with an explicit
+ *   stack of depth O(log n), so large imports cannot overflow the call stack.
+ * - headMap / tailMap return live read-only views over the tree instead of
+ *   copying into a java.util.TreeMap. Views are not fail-fast: do not
+ *   mutate the tree while iterating one.
+ */
 public class TrailTreeMap<K extends Comparable<K>, V> implements TrailTreeInterface<K, V> {
 
     private static class Node<K, V> {
         K key;
         List<V> values;
         Node<K, V> left, right;
+        int height = 1;
 
         Node(K key, V value) {
             this.key = key;
@@ -17,14 +29,60 @@ public class TrailTreeMap<K extends Comparable<K>, V> implements TrailTreeInterf
     }
 
     private Node<K,V> root;
-    private int size = 0;
+    private int size = 0;   // number of distinct keys
 
-    /** Insert key-value */
+    /* ========================= AVL helpers ========================= */
+
+    private static int height(Node<?, ?> n) { return n == null ? 0 : n.height; }
+
+    private static void update(Node<?, ?> n) {
+        n.height = 1 + Math.max(height(n.left), height(n.right));
+    }
+
+    private Node<K,V> rotateRight(Node<K,V> y) {
+        Node<K,V> x = y.left;
+        y.left = x.right;
+        x.right = y;
+        update(y);
+        update(x);
+        return x;
+    }
+
+    private Node<K,V> rotateLeft(Node<K,V> x) {
+        Node<K,V> y = x.right;
+        x.right = y.left;
+        y.left = x;
+        update(x);
+        update(y);
+        return y;
+    }
+
+    private Node<K,V> rebalance(Node<K,V> n) {
+        update(n);
+        int bf = height(n.left) - height(n.right);
+
+        if (bf > 1) {
+            if (height(n.left.left) < height(n.left.right))
+                n.left = rotateLeft(n.left);
+            return rotateRight(n);
+        }
+        if (bf < -1) {
+            if (height(n.right.right) < height(n.right.left))
+                n.right = rotateRight(n.right);
+            return rotateLeft(n);
+        }
+        return n;
+    }
+
+    /* ========================= Insert ========================= */
+
+    /** Insert key-value (duplicate keys append to the key's value list) */
     @Override
     public void put(K key, V value) {
         root = insert(root, key, value);
     }
 
+    // recursion depth is bounded by the AVL height (~1.44 log n)
     private Node<K,V> insert(Node<K,V> node, K key, V value) {
         if (node == null) {
             size++;
@@ -35,110 +93,317 @@ public class TrailTreeMap<K extends Comparable<K>, V> implements TrailTreeInterf
 
         if (cmp < 0) node.left = insert(node.left, key, value);
         else if (cmp > 0) node.right = insert(node.right, key, value);
-        else node.values.add(value);
+        else {
+            node.values.add(value);
+            return node;
+        }
 
-        return node;
+        return rebalance(node);
     }
 
-    /** Get FIRST matching value */
-    @Override
-    public V get(K key) {
+    /* ========================= Lookup ========================= */
+
+    private Node<K,V> findNode(K key) {
         Node<K,V> node = root;
 
         while (node != null) {
             int cmp = key.compareTo(node.key);
-            if (cmp == 0) 
-                return node.values.get(0);
-            else if (cmp < 0) 
+            if (cmp == 0)
+                return node;
+            else if (cmp < 0)
                 node = node.left;
-            else 
+            else
                 node = node.right;
         }
-
         return null;
     }
 
-    /** Get all V whose key is in [min, max] */
+    /** Get FIRST matching value */
     @Override
-    public List<V> getRange(K min, K max) {
-        List<V> list = new ArrayList<>();
-        dfsRange(root, min, max, list);
-        return list;
+    public V get(K key) {
+        Node<K,V> node = findNode(key);
+        return node == null ? null : node.values.get(0);
     }
 
-    private void dfsRange(Node<K,V> node, K min, K max, List<V> out) {
-        if (node == null) return;
+    /* ========================= Delete ========================= */
 
-        if (min.compareTo(node.key) <= 0)
-            dfsRange(node.left, min, max, out);
+    /** Remove a key together with all of its values */
+    @Override
+    public boolean removeByKey(K key) {
+        int before = size;
+        root = delete(root, key);
+        return size < before;
+    }
 
-        if (min.compareTo(node.key) <= 0 && max.compareTo(node.key) >= 0)
-            out.addAll(node.values);
+    private Node<K,V> delete(Node<K,V> node, K key) {
+        if (node == null) return null;
 
-        if (max.compareTo(node.key) >= 0)
-            dfsRange(node.right, min, max, out);
+        int cmp = key.compareTo(node.key);
+
+        if (cmp < 0) node.left = delete(node.left, key);
+        else if (cmp > 0) node.right = delete(node.right, key);
+        else {
+            size--;
+            if (node.left == null) return node.right;
+            if (node.right == null) return node.left;
+
+            // two children: lift the in-order successor into this node
+            Node<K,V> succ = node.right;
+            while (succ.left != null) succ = succ.left;
+            node.key = succ.key;
+            node.values = succ.values;
+            size++;                       // the successor's delete decrements again
+            node.right = delete(node.right, succ.key);
+        }
+
+        return rebalance(node);
     }
 
+    /** Remove one value stored under key; drops the key once its list is empty */
     @Override
-    public SortedMap<K, List<V>> headMap(K max) {
-        TreeMap<K,List<V>> map = new TreeMap<>();
-        fillHeadMap(root, max, map);
-        return map;
+    public boolean remove(K key, V value) {
+        Node<K,V> node = findNode(key);
+        if (node == null || !node.values.remove(value)) return false;
+        if (node.values.isEmpty()) removeByKey(key);
+        return true;
     }
 
-    private void fillHeadMap(Node<K,V> node, K max, TreeMap<K,List<V>> map) {
-        if (node == null) return;
+    /** Remove a value wherever it is stored (O(n) scan; prefer remove(key, value)) */
+    @Override
+    public boolean remove(V item) {
+        RangeIterator it = new RangeIterator(null, false, null, false);
+        while (it.hasNext()) {
+            Node<K,V> n = it.next();
+            if (n.values.contains(item)) return remove(n.key, item);
+        }
+        return false;
+    }
 
-        int cmp = node.key.compareTo(max);
+    /* ========================= Range queries ========================= */
 
-        if (cmp <= 0)
-            map.put(node.key, new ArrayList<>(node.values));
+    /** Get all V whose key is in [min, max] */
+    @Override
+    public List<V> getRange(K min, K max) {
+        List<V> list = new ArrayList<>();
+        RangeIterator it = new RangeIterator(min, true, max, true);
+        while (it.hasNext()) list.addAll(it.next().values);
+        return list;
+    }
 
-        fillHeadMap(node.left, max, map);
-        if (cmp <= 0) fillHeadMap(node.right, max, map);
+    /** Live view of keys &lt;= max */
+    @Override
+    public SortedMap<K, List<V>> headMap(K max) {
+        return new RangeView(null, false, max, true);
     }
 
+    /** Live view of keys &gt;= min */
     @Override
     public SortedMap<K, List<V>> tailMap(K min) {
-        TreeMap<K,List<V>> map = new TreeMap<>();
-        fillTailMap(root, min, map);
-        return map;
+        return new RangeView(min, true, null, false);
     }
 
-    private void fillTailMap(Node<K,V> node, K min, TreeMap<K,List<V>> map) {
-        if (node == null) return;
+    /** Live, ascending view of all keys */
+    @Override
+    public Set<K> keySet() {
+        return new RangeView(null, false, null, false).keySet();
+    }
 
-        int cmp = node.key.compareTo(min);
+    /**
+     * In-order iterator over nodes whose key lies inside the given bounds.
+     * A null bound means unbounded on that side.
+     */
+    private final class RangeIterator implements Iterator<Node<K,V>> {
+        private final Deque<Node<K,V>> stack = new ArrayDeque<>();
+        private final K hi;
+        private final boolean hiInclusive;
+        private Node<K,V> next;
+
+        RangeIterator(K lo, boolean loInclusive, K hi, boolean hiInclusive) {
+            this.hi = hi;
+            this.hiInclusive = hiInclusive;
+
+            // push the path down to the first key >= lo
+            Node<K,V> n = root;
+            while (n != null) {
+                if (lo != null && tooLow(n.key, lo, loInclusive)) {
+                    n = n.right;
+                } else {
+                    stack.push(n);
+                    n = n.left;
+                }
+            }
+            advance();
+        }
+
+        private void advance() {
+            if (stack.isEmpty()) { next = null; return; }
+
+            Node<K,V> n = stack.pop();
+            if (hi != null && tooHigh(n.key, hi, hiInclusive)) {
+                next = null;
+                stack.clear();
+                return;
+            }
+            next = n;
+            for (Node<K,V> c = n.right; c != null; c = c.left) stack.push(c);
+        }
 
-        if (cmp >= 0)
-            map.put(node.key, new ArrayList<>(node.values));
+        @Override
+        public boolean hasNext() { return next != null; }
 
-        if (cmp >= 0) fillTailMap(node.left, min, map);
-        fillTailMap(node.right, min, map);
+        @Override
+        public Node<K,V> next() {
+            if (next == null) throw new NoSuchElementException();
+            Node<K,V> out = next;
+            advance();
+            return out;
+        }
     }
 
-    @Override
-    public Set<K> keySet() {
-        Set<K> set = new TreeSet<>();
-        fillKeys(root, set);
-        return set;
+    private static <K extends Comparable<K>> boolean tooLow(K key, K lo, boolean inclusive) {
+        int c = key.compareTo(lo);
+        return inclusive ? c < 0 : c <= 0;
     }
 
-    private void fillKeys(Node<K,V> n, Set<K> out) {
-        if (n == null) return;
-        fillKeys(n.left, out);
-        out.add(n.key);
-        fillKeys(n.right, out);
+    private static <K extends Comparable<K>> boolean tooHigh(K key, K hi, boolean inclusive) {
+        int c = key.compareTo(hi);
+        return inclusive ? c > 0 : c >= 0;
     }
 
-    @Override
-    public void add(V item) {
-        throw new UnsupportedOperationException("Use put(key,value) instead.");
+    /**
+     * Read-only SortedMap view over a key range of this tree.
+     * Nested headMap / subMap follow the java.util contract (toKey exclusive).
+     */
+    private final class RangeView extends AbstractMap<K, List<V>> implements SortedMap<K, List<V>> {
+        private final K lo, hi;
+        private final boolean loInclusive, hiInclusive;
+
+        RangeView(K lo, boolean loInclusive, K hi, boolean hiInclusive) {
+            this.lo = lo;
+            this.loInclusive = loInclusive;
+            this.hi = hi;
+            this.hiInclusive = hiInclusive;
+        }
+
+        private boolean inRange(K key) {
+            return (lo == null || !tooLow(key, lo, loInclusive))
+                && (hi == null || !tooHigh(key, hi, hiInclusive));
+        }
+
+        @SuppressWarnings("unchecked")
+        private Node<K,V> lookup(Object key) {
+            if (key == null) return null;
+            K k;
+            try {
+                k = (K) key;
+                if (!inRange(k)) return null;
+                return findNode(k);
+            } catch (ClassCastException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public List<V> get(Object key) {
+            Node<K,V> n = lookup(key);
+            return n == null ? null : Collections.unmodifiableList(n.values);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return lookup(key) != null;
+        }
+
+        @Override
+        public Set<Map.Entry<K, List<V>>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Map.Entry<K, List<V>>> iterator() {
+                    RangeIterator it = new RangeIterator(lo, loInclusive, hi, hiInclusive);
+                    return new Iterator<>() {
+                        @Override public boolean hasNext() { return it.hasNext(); }
+                        @Override public Map.Entry<K, List<V>> next() {
+                            Node<K,V> n = it.next();
+                            return new AbstractMap.SimpleImmutableEntry<>(
+                                    n.key, Collections.unmodifiableList(n.values));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    int c = 0;
+                    RangeIterator it = new RangeIterator(lo, loInclusive, hi, hiInclusive);
+                    while (it.hasNext()) { it.next(); c++; }
+                    return c;
+                }
+
+                @Override
+                public boolean isEmpty() {
+                    return !new RangeIterator(lo, loInclusive, hi, hiInclusive).hasNext();
+                }
+            };
+        }
+
+        @Override
+        public Comparator<? super K> comparator() { return null; }   // natural ordering
+
+        @Override
+        public SortedMap<K, List<V>> subMap(K fromKey, K toKey) {
+            return narrow(fromKey, true, toKey, false);
+        }
+
+        @Override
+        public SortedMap<K, List<V>> headMap(K toKey) {
+            return narrow(null, false, toKey, false);
+        }
+
+        @Override
+        public SortedMap<K, List<V>> tailMap(K fromKey) {
+            return narrow(fromKey, true, null, false);
+        }
+
+        // intersect the requested bounds with this view's bounds
+        private SortedMap<K, List<V>> narrow(K from, boolean fromInc, K to, boolean toInc) {
+            K nLo = lo; boolean nLoInc = loInclusive;
+            if (from != null && (nLo == null || from.compareTo(nLo) > 0)) { nLo = from; nLoInc = fromInc; }
+
+            K nHi = hi; boolean nHiInc = hiInclusive;
+            if (to != null && (nHi == null || to.compareTo(nHi) <= 0)) { nHi = to; nHiInc = toInc; }
+
+            return new RangeView(nLo, nLoInc, nHi, nHiInc);
+        }
+
+        @Override
+        public K firstKey() {
+            RangeIterator it = new RangeIterator(lo, loInclusive, hi, hiInclusive);
+            if (!it.hasNext()) throw new NoSuchElementException();
+            return it.next().key;
+        }
+
+        @Override
+        public K lastKey() {
+            // descend towards hi, remembering the last in-range candidate
+            Node<K,V> n = root, best = null;
+            while (n != null) {
+                if (hi != null && tooHigh(n.key, hi, hiInclusive)) {
+                    n = n.left;
+                } else {
+                    best = n;
+                    n = n.right;
+                }
+            }
+            if (best == null || (lo != null && tooLow(best.key, lo, loInclusive)))
+                throw new NoSuchElementException();
+            return best.key;
+        }
     }
 
+    /* ========================= Collection ADT ========================= */
+
     @Override
-    public boolean remove(V item) {
-        throw new UnsupportedOperationException("Not required for BST implementation.");
+    public void add(V item) {
+        throw new UnsupportedOperationException("Use put(key,value) instead.");
     }
 
     @Override
@@ -156,14 +421,8 @@ public class TrailTreeMap<K extends Comparable<K>, V> implements TrailTreeInterf
     @Override
     public List<V> toList() {
         List<V> out = new ArrayList<>();
-        collect(root, out);
+        RangeIterator it = new RangeIterator(null, false, null, false);
+        while (it.hasNext()) out.addAll(it.next().values);
         return out;
     }
-
-    private void collect(Node<K,V> n, List<V> out) {
-        if (n == null) return;
-        collect(n.left, out);
-        out.addAll(n.values);
-        collect(n.right, out);
-    }
-}
\ No newline at end of file
+}
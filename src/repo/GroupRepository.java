@@ -5,14 +5,23 @@ import model.group.UserProfile;
 import model.trail.Trail;
 import model.trail.TrailIndex;
 import model.trail.TrailList;
+import model.trail.TrailListInterface;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * CSV persistence format:
- * groupId,trailName,title,startIso,capacity,participants_encoded
+ * groupId,trailKey,title,startIso,capacity,participants_encoded
+ * trailKey is the trail's identity as Trail.equals sees it,
+ * name|park|state|zipcode, with '%', ',' and '|' percent-escaped in each
+ * part. It depends only on the trail's content, so it survives reordering
+ * of trailsData.json (runtime TrailRegistry ids do not). Files written
+ * before keys existed carry the bare trail name here; those rows are still
+ * resolved by name.
  * participants_encoded example: userId|nick|party;userId2|nick2|party2
  */
 public class GroupRepository {
@@ -20,11 +29,14 @@ public class GroupRepository {
 
     public GroupRepository(String path) { this.file = new File(path); }
 
-    /** Load all groups at startup (resolve Trail by trailName via index) */
+    /** Load all groups at startup (resolve Trail by trailId, or legacy trailName, via index) */
     public TrailList<Group> loadAll(TrailIndex index) {
     	TrailList<Group> list = new TrailList<>();
         if (!file.exists()) return list;
 
+        Map<String, Trail> byKey = new HashMap<>();
+        for (Trail t : index.getAll()) byKey.putIfAbsent(trailKey(t), t);
+
         try (BufferedReader br = new BufferedReader(
                 new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
             String line;
@@ -34,13 +46,13 @@ public class GroupRepository {
                 if (a.length < 6) continue;
 
                 String gid = a[0];
-                String trailName = a[1];
+                String trailRef = a[1];
                 String title = a[2];
                 LocalDateTime start = LocalDateTime.parse(a[3]);
                 int capacity = Integer.parseInt(a[4]);
                 String participantsEnc = a[5];
 
-                Trail t = index.getByName(trailName);
+                Trail t = resolveTrail(index, byKey, trailRef);
                 if (t == null) continue; // Skip inconsistent data
 
                 Group g = new Group(gid, t, title, start, capacity);
@@ -67,17 +79,16 @@ public class GroupRepository {
     }
 
     /** Save all groups (full overwrite, simple and reliable) */
-    public void saveAll(TrailList<Group> groups) {
+    public void saveAll(TrailListInterface<Group> groups) {
         ensureParent();
         try (PrintWriter pw = new PrintWriter(
                 new OutputStreamWriter(new FileOutputStream(file, false), StandardCharsets.UTF_8))) {
-        	for (int i = 0; i < groups.size(); i++) {
-                Group g = groups.get(i);
+        	for (Group g : groups) {
                 if (g == null) continue;
                 String participants = encodeParticipants(g);
                 pw.printf("%s,%s,%s,%s,%d,%s%n",
                         g.getId(),
-                        g.getTrail().getName(),
+                        trailKey(g.getTrail()),
                         escapeComma(g.getTitle()),
                         g.getStartTime(),
                         g.getCapacity(),
@@ -86,6 +97,25 @@ public class GroupRepository {
         } catch (IOException e) { e.printStackTrace(); }
     }
 
+    // a key resolves only to the trail with exactly that identity; anything else is a legacy name
+    private static Trail resolveTrail(TrailIndex index, Map<String, Trail> byKey, String trailRef) {
+        if (trailRef.split("\\|", -1).length == 4) return byKey.get(trailRef);
+        return index.getByName(trailRef);
+    }
+
+    // ─────── Trail key ───────
+    static String trailKey(Trail t) {
+        return escapeKeyPart(t.getName()) + '|' + escapeKeyPart(t.getPark()) + '|'
+                + escapeKeyPart(t.getState()) + '|' + escapeKeyPart(t.getZipcode());
+    }
+
+    // a null part is written as "" (save and load both go through here, so keys still agree)
+    private static String escapeKeyPart(String s) {
+        if (s == null) return "";
+        return s.replace("%", "%25").replace(",", "%2C").replace("|", "%7C")
+                .replace("\n", "%0A").replace("\r", "%0D");
+    }
+
     private static String encodeParticipants(Group g) {
         StringBuilder sb = new StringBuilder();
         g.getParticipants().forEach(p -> {
@@ -46,9 +46,8 @@ public class ActivityService {
     public TrailList<Group> getJoined(String username) {
         TrailList<Group> result = new TrailList<>();
 
-        var allGroups = GlobalData.getAllGroups(); // TrailList<Group>
-        for (int i = 0; i < allGroups.size(); i++) {
-            Group g = allGroups.get(i);
+        var allGroups = GlobalData.getAllGroups(); // copy-on-write snapshot
+        for (Group g : allGroups) {
             if (g == null) continue;
 
             boolean joined = false;
@@ -79,9 +78,8 @@ public class ActivityService {
 
         // First, build a global mapping from group id -> Group
         Map<String, Group> map = new HashMap<>();
-        var allGroups = GlobalData.getAllGroups(); // TrailList<Group>
-        for (int i = 0; i < allGroups.size(); i++) {
-            Group g = allGroups.get(i);
+        var allGroups = GlobalData.getAllGroups(); // copy-on-write snapshot
+        for (Group g : allGroups) {
             if (g == null) continue;
             map.putIfAbsent(g.getId(), g);
         }
@@ -1,55 +1,102 @@
 package service;
 
 import java.util.EmptyStackException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
 
 /**
- * Simple stack ADT for tracking animal browsing history.
- * 
+ * Stack ADT for tracking animal browsing history.
+ *
  * Demonstrates ADT implementation: push, pop, peek, isEmpty.
- * Stores recent AnimalGroup browsing order.
+ * Backed by a ring buffer: get(i) is O(1) (0 = most recent). Built with a
+ * capacity, the stack is bounded: once full, each push silently drops the
+ * oldest entry, so memory stays constant however long a session runs.
+ * The no-arg stack is unbounded (the ring grows) and never drops anything,
+ * as back navigation needs.
+ * With moveToFront enabled, pushing an item already in the history moves it
+ * to the top instead of storing it twice.
  */
-public class AnimalHistoryStack<T> {
+public class AnimalHistoryStack<T> implements Iterable<T> {
 
-    private Node<T> top;
+    public static final int DEFAULT_CAPACITY = 20;
+
+    private Object[] buf;
+    private final boolean bounded;
+    private final boolean moveToFront;
+    private int top = 0;     // slot of the most recent item
     private int size = 0;
 
+    /** Unbounded stack */
+    public AnimalHistoryStack() {
+        this.buf = new Object[16];
+        this.bounded = false;
+        this.moveToFront = false;
+    }
+
+    public AnimalHistoryStack(int capacity) {
+        this(capacity, false);
+    }
+
+    public AnimalHistoryStack(int capacity, boolean moveToFront) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be > 0");
+        this.buf = new Object[capacity];
+        this.bounded = true;
+        this.moveToFront = moveToFront;
+    }
 
-    private static class Node<T> {
-        T data;
-        Node<T> next;
-        Node(T data) { this.data = data; }
+    /** Physical slot of logical index i (0 = top) */
+    private int slot(int i) {
+        return (top + i) % buf.length;
     }
 
     /** Push  */
     public void push(T item) {
-        Node<T> node = new Node<>(item);
-        node.next = top;
-        top = node;
-        size++;
+        if (moveToFront) {
+            int idx = indexOf(item);
+            if (idx == 0) return;            // already on top
+            if (idx > 0) removeAt(idx);
+        }
+
+        if (!bounded && size == buf.length) grow();
+        top = (top - 1 + buf.length) % buf.length;
+        buf[top] = item;                     // overwrites the oldest slot when full
+        if (size < buf.length) size++;
+    }
+
+    /** Double the ring, unwrapping it so the top lands at slot 0 */
+    private void grow() {
+        Object[] bigger = new Object[buf.length * 2];
+        for (int i = 0; i < size; i++) bigger[i] = buf[slot(i)];
+        buf = bigger;
+        top = 0;
     }
 
     /** Pop  */
+    @SuppressWarnings("unchecked")
     public T pop() {
         if (isEmpty()) {
             throw new EmptyStackException();
         }
-        T item = top.data;
-        top = top.next;
+        T item = (T) buf[top];
+        buf[top] = null;
+        top = (top + 1) % buf.length;
         size--;
         return item;
     }
 
     /** Peek  */
+    @SuppressWarnings("unchecked")
     public T peek() {
         if (isEmpty()) {
             throw new EmptyStackException();
         }
-        return top.data;
+        return (T) buf[top];
     }
 
     /** */
     public boolean isEmpty() {
-        return top == null;
+        return size == 0;
     }
 
     /** */
@@ -57,26 +104,63 @@ public class AnimalHistoryStack<T> {
         return size;
     }
 
+    /** Maximum size, or Integer.MAX_VALUE for an unbounded stack */
+    public int capacity() {
+        return bounded ? buf.length : Integer.MAX_VALUE;
+    }
+
     /***/
     public void clear() {
-        top = null;
+        for (int i = 0; i < size; i++) buf[slot(i)] = null;
+        top = 0;
         size = 0;
     }
-    
-    /** 
-     * 
+
+    /**
+     * O(1) indexed access; index 0 is the most recently pushed item.
      */
+    @SuppressWarnings("unchecked")
     public T get(int index) {
         if (index < 0 || index >= size) {
             throw new IndexOutOfBoundsException("Index: " + index);
         }
+        return (T) buf[slot(index)];
+    }
 
-        Node<T> current = top;
-        for (int i = 0; i < index; i++) {
-            current = current.next;
+    /** Logical index of item (0 = top), or -1 */
+    public int indexOf(T item) {
+        for (int i = 0; i < size; i++) {
+            if (Objects.equals(buf[slot(i)], item)) return i;
         }
+        return -1;
+    }
 
-        return current.data;
+    /** Remove the entry at logical index i, closing the gap from the top side */
+    private void removeAt(int index) {
+        for (int i = index; i > 0; i--) {
+            buf[slot(i)] = buf[slot(i - 1)];
+        }
+        buf[top] = null;
+        top = (top + 1) % buf.length;
+        size--;
     }
 
+    /** Most recent first */
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<>() {
+            private int i = 0;
+
+            @Override
+            public boolean hasNext() {
+                return i < size;
+            }
+
+            @Override
+            public T next() {
+                if (i >= size) throw new NoSuchElementException();
+                return get(i++);
+            }
+        };
+    }
 }
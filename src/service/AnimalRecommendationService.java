@@ -38,21 +38,16 @@ public class AnimalRecommendationService {
         }
 
        
-        List<Trail> sortedTrails = new ArrayList<>();
+        // one pass over the entries: the sort compares stored scores, no map lookups
+        List<Map.Entry<Trail, Double>> ranked = new ArrayList<>(scoreMap.size());
+        scoreMap.forEachEntry((t, s) -> ranked.add(Map.entry(t, s)));
 
-        // keySet()
-        Set<Trail> keys = scoreMap.keySet();
-        if (keys != null) {
-            sortedTrails.addAll(keys);
-        }
-
-      
-        sortedTrails.sort((a, b) -> Double.compare(scoreMap.get(b), scoreMap.get(a)));
+        ranked.sort((a, b) -> Double.compare(b.getValue(), a.getValue()));
 
         // TrailListInterface
-        TrailListInterface<Trail> recommended = new TrailList<>();
-        for (Trail t : sortedTrails) {
-            recommended.add(t);
+        TrailListInterface<Trail> recommended = new TrailList<>(ranked.size());
+        for (Map.Entry<Trail, Double> e : ranked) {
+            recommended.add(e.getKey());
         }
 
         return recommended.toList(); // 
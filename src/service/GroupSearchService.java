@@ -5,11 +5,12 @@ import model.group.GroupSearchCriteria;
 import model.group.UserProfile;
 import model.trail.Trail;
 import model.trail.TrailList;
+import model.trail.TrailListInterface;
 
 public interface GroupSearchService {
     // Initialize / incrementally maintain indexes
     void indexTrails(TrailList<Trail> trails);
-    void indexGroups(TrailList<Group> groups);
+    void indexGroups(TrailListInterface<Group> groups);
 
     // Keyword search: fuzzy match on Trail name, return groups under those Trails
     TrailList<Group> searchGroupsByTrailKeyword(String keyword, int trailLimit);
@@ -155,36 +155,22 @@ public class TrailRecommendationService {
             Boolean wildlife,
             Object unused // kept for compatibility
     ) {
-        TrailList<Trail> out = new TrailList<>();
-
-        // index.getAll() returns a Java List; convert into iteration
-        List<Trail> all = index.getAll();
-
-        for (Trail t : all) {
-
-            if (diff != null && t.getDifficulty() != diff)
-                continue;
-
-            if (topicKey != null &&
-                    !t.getTopic().name().equalsIgnoreCase(topicKey))
-                continue;
-
-            if (length != null && Math.abs(t.getLength() - length) > 0.5)
-                continue;
-
-            if (pet != null && t.isPetFriendly() != pet)
-                continue;
-
-            if (camp != null && t.isCampingAllowed() != camp)
-                continue;
-
-            if (wildlife != null && t.isWildAnimalPossible() != wildlife)
-                continue;
-
-            out.add(t);
+        Topic topic = null;
+        if (topicKey != null) {
+            for (Topic tp : Topic.values()) {
+                if (tp.name().equalsIgnoreCase(topicKey)) topic = tp;
+            }
+            if (topic == null) return new TrailList<>();   // unknown topic matches nothing
         }
 
-        return out;
+        // column scan over the current snapshot
+        return index.snapshot().select(new TrailColumnStore.Query()
+                .difficulty(diff)
+                .topic(topic)
+                .lengthNear(length, 0.5)
+                .flag(TrailColumnStore.PET, pet)
+                .flag(TrailColumnStore.CAMPING, camp)
+                .flag(TrailColumnStore.WILDLIFE, wildlife));
     }
 
     /* ========================================================================
@@ -210,8 +196,8 @@ public class TrailRecommendationService {
             Boolean wildlife,
             int topK
     ) {
-        // Convert all trails into TrailList
-        TrailList<Trail> all = fromJavaList(index.getAll());
+        // every step scans the same snapshot's columns
+        TrailIndexSnapshot all = index.snapshot();
         TrailList<Trail> result;
 
         // Step 1 – wildlife respected, others exact
@@ -245,7 +231,7 @@ public class TrailRecommendationService {
         }
 
         // Step 7 – finally return all trails as fallback
-        return all;
+        return fromJavaList(all.getAll());
     }
 
     /* ========================================================================
@@ -256,7 +242,7 @@ public class TrailRecommendationService {
      * Filter helper with soft length tolerance.
      */
     private TrailList<Trail> filterRelax(
-            TrailList<Trail> all,
+            TrailIndexSnapshot all,
             Double targetLen,
             Difficulty diff,
             Topic topic,
@@ -265,58 +251,29 @@ public class TrailRecommendationService {
             Boolean wildlife,
             double lenTolerance
     ) {
-
-        TrailList<Trail> out = new TrailList<>();
-
-        for (Trail t : all.toList()) {
-
-            if (diff != null && t.getDifficulty() != diff) continue;
-            if (topic != null && t.getTopic() != topic) continue;
-            if (pet != null && t.isPetFriendly() != pet) continue;
-            if (camp != null && t.isCampingAllowed() != camp) continue;
-            if (wildlife != null && t.isWildAnimalPossible() != wildlife) continue;
-
-            if (targetLen != null &&
-                    Math.abs(t.getLength() - targetLen) > lenTolerance)
-                continue;
-
-            out.add(t);
-        }
-
-        return out;
+        return all.select(new TrailColumnStore.Query()
+                .difficulty(diff)
+                .topic(topic)
+                .flag(TrailColumnStore.PET, pet)
+                .flag(TrailColumnStore.CAMPING, camp)
+                .flag(TrailColumnStore.WILDLIFE, wildlife)
+                .lengthNear(targetLen, lenTolerance));
     }
 
     /**
      * Filter helper that relaxes difficulty within tolerance band.
      */
     private TrailList<Trail> filterRelaxDiff(
-            TrailList<Trail> all,
+            TrailIndexSnapshot all,
             Double targetLen,
             Difficulty prefDiff,
             Topic topic,
             int diffTolerance
     ) {
-
-        TrailList<Trail> out = new TrailList<>();
-
-        for (Trail t : all.toList()) {
-
-            if (topic != null && t.getTopic() != topic)
-                continue;
-
-            if (prefDiff != null) {
-                int d = Math.abs(t.getDifficulty().rank() - prefDiff.rank());
-                if (d > diffTolerance) continue;
-            }
-
-            if (targetLen != null &&
-                    Math.abs(t.getLength() - targetLen) > 5.0)
-                continue;
-
-            out.add(t);
-        }
-
-        return out;
+        return all.select(new TrailColumnStore.Query()
+                .topic(topic)
+                .difficultyWithin(prefDiff, diffTolerance)
+                .lengthNear(targetLen, 5.0));
     }
 
     /* ========================================================================
@@ -328,18 +285,18 @@ public class TrailRecommendationService {
      */
     private TrailList<Trail> sortByFinalScore(TrailList<Trail> list, UserPreference pref, int topK) {
 
-        Comparator<Trail> cmp = Comparator.<Trail>comparingDouble(
-                t -> finalScore(t, pref)
-        ).reversed();
-
-        // Make a copy to avoid side effects, then sort using TrailList.sort()
-        TrailList<Trail> copy = copyOf(list);
-        copy.sort(cmp);
+        // Score each trail once (the comparator used to recompute it per comparison)
+        DistanceBands bands = new DistanceBands(pref.getPreferredLat(), pref.getPreferredLon());
+        TrailList<Scored> scored = new TrailList<>(list.size());
+        for (Trail t : list) {
+            scored.add(new Scored(t, finalScore(t, pref, bands)));
+        }
+        scored.sort(Comparator.comparingDouble(Scored::score).reversed());
 
         TrailList<Trail> out = new TrailList<>();
-        int limit = Math.min(topK, copy.size());
+        int limit = Math.min(topK, scored.size());
         for (int i = 0; i < limit; i++) {
-            out.add(copy.get(i));
+            out.add(scored.get(i).trail());
         }
         return out;
     }
@@ -351,10 +308,10 @@ public class TrailRecommendationService {
      *  - intrinsicScore       (0–1)
      * Weighted as: 0.45 * pref + 0.35 * distance + 0.20 * intrinsic.
      */
-    private double finalScore(Trail t, UserPreference pref) {
+    private double finalScore(Trail t, UserPreference pref, DistanceBands bands) {
 
         double prefScore = preferenceMatchScore(t, pref);
-        double distScore = distanceBandScore(t, pref);
+        double distScore = bands.score(t);
         double intrinsic = intrinsicScore(t);
 
         return prefScore * 0.45 + distScore * 0.35 + intrinsic * 0.20;
@@ -391,15 +348,40 @@ public class TrailRecommendationService {
 
     /* ---------- distance band score (0.2–1.0) ---------- */
 
-    private double distanceBandScore(Trail t, UserPreference pref) {
+    /**
+     * Distance bands around the preferred location, answered by the spatial
+     * index: one radius query per band touches only the grid cells within
+     * 200 miles, and scoring a trail is then a bitmap lookup instead of a
+     * haversine computation.
+     */
+    private final class DistanceBands {
+        private final TrailIndexSnapshot snap = index.snapshot();
+        private final double lat, lon;
+        private final TrailBitmap within30, within60, within120, within200;
+
+        DistanceBands(double lat, double lon) {
+            this.lat = lat;
+            this.lon = lon;
+            within30 = snap.withinRadius(lat, lon, 30);
+            within60 = snap.withinRadius(lat, lon, 60);
+            within120 = snap.withinRadius(lat, lon, 120);
+            within200 = snap.withinRadius(lat, lon, 200);
+        }
 
-        double dist = distanceMiles(
-                pref.getPreferredLat(),
-                pref.getPreferredLon(),
-                t.getLat(),
-                t.getLon()
-        );
+        double score(Trail t) {
+            int row = snap.ordinalOf(t);
+            if (row < 0) return bandScore(TrailGeoIndex.distanceMiles(lat, lon, t.getLat(), t.getLon()));
 
+            if (within30.contains(row)) return 1.0;
+            if (within60.contains(row)) return 0.8;
+            if (within120.contains(row)) return 0.6;
+            if (within200.contains(row)) return 0.4;
+            return 0.2;
+        }
+    }
+
+    // trails not in the snapshot (e.g. removed meanwhile) fall back to the formula
+    private static double bandScore(double dist) {
         if (dist <= 30) return 1.0;
         if (dist <= 60) return 0.8;
         if (dist <= 120) return 0.6;
@@ -473,32 +455,28 @@ public class TrailRecommendationService {
 
      // Compute max preference score in candidate set for normalization
         double maxPrefScore = 0.0;
-        for (Trail t : candidates.toList()) {
+        for (Trail t : candidates) {
             double score = preferenceMatchScore(t, pref);
             if (score > maxPrefScore) {
                 maxPrefScore = score;
             }
         }
 
-        // IMPORTANT: make a final copy for lambda capture
-        final double maxPrefFinal = maxPrefScore;
-
-        // Comparator: 80% distance + 20% normalized preference
-        Comparator<Trail> cmp =
-                Comparator.<Trail>comparingDouble(
-                        t -> nearbyScore(t, pref, maxPrefFinal)
-                ).reversed();
-
-        // Use TrailHeap (ADT) to get top-K
-        TrailHeap<Trail> heap = new TrailHeap<>(cmp);
-        for (Trail t : candidates.toList()) {
-            heap.add(t);
+        // Score each candidate once: 80% distance + 20% normalized preference
+        DistanceBands bands = new DistanceBands(pref.getPreferredLat(), pref.getPreferredLon());
+        TrailList<Scored> scored = new TrailList<>(candidates.size());
+        for (Trail t : candidates) {
+            scored.add(new Scored(t, nearbyScore(t, pref, maxPrefScore, bands)));
         }
 
+        // Use TrailHeap (ADT) to get top-K; addAll heapifies in O(n)
+        TrailHeap<Scored> heap = new TrailHeap<>(Comparator.comparingDouble(Scored::score).reversed());
+        heap.addAll(scored.view());
+
         TrailList<Trail> out = new TrailList<>();
         int limit = Math.min(topK, heap.getCurrentSize());
         for (int i = 0; i < limit; i++) {
-            out.add(heap.removeTop());
+            out.add(heap.removeTop().trail());
         }
 
         return out;
@@ -510,9 +488,9 @@ public class TrailRecommendationService {
      *  - preferenceScore : normalized into 0 ~ 1 within candidate set.
      *  - Combined as 0.7 * distance + 0.3 * preference.
      */
-    private double nearbyScore(Trail t, UserPreference pref, double maxPrefScore) {
+    private double nearbyScore(Trail t, UserPreference pref, double maxPrefScore, DistanceBands bands) {
 
-        double distScore = distanceBandScore(t, pref); // already in [0.2, 1.0]
+        double distScore = bands.score(t); // already in [0.2, 1.0]
 
         double rawPref = preferenceMatchScore(t, pref);
         double prefNorm = (maxPrefScore > 0.0) ? (rawPref / maxPrefScore) : 0.0;
@@ -521,36 +499,16 @@ public class TrailRecommendationService {
     }
 
     /* ========================================================================
-       8. Utilities: distance & TrailList helpers
+       8. Utilities: TrailList helpers
        ======================================================================== */
 
-    /** Haversine distance between two GPS points (in miles). */
-    private double distanceMiles(double lat1, double lon1, double lat2, double lon2) {
-        double R = 3958.8;
-
-        double dLat = Math.toRadians(lat2 - lat1);
-        double dLon = Math.toRadians(lon2 - lon1);
-
-        double a =
-                Math.sin(dLat / 2) * Math.sin(dLat / 2)
-                        + Math.cos(Math.toRadians(lat1))
-                        * Math.cos(Math.toRadians(lat2))
-                        * Math.sin(dLon / 2) * Math.sin(dLon / 2);
-
-        return R * (2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a)));
-    }
+    /** A trail with its score, computed once before sorting / heap selection. */
+    private record Scored(Trail trail, double score) {}
 
     /** Convert a java.util.List<Trail> to TrailList<Trail>. */
     private TrailList<Trail> fromJavaList(List<Trail> src) {
-        TrailList<Trail> out = new TrailList<>();
-        for (Trail t : src) out.add(t);
+        TrailList<Trail> out = new TrailList<>(src.size());
+        out.addAll(src);
         return out;
     }
-
-    /** Create a shallow copy of a TrailList. */
-    private TrailList<Trail> copyOf(TrailList<Trail> src) {
-        TrailList<Trail> copy = new TrailList<>();
-        for (Trail t : src.toList()) copy.add(t);
-        return copy;
-    }
 }
@@ -3,6 +3,7 @@ package service;
 import java.util.ArrayList;
 import java.util.List;
 
+import model.search.TrailTextIndex;
 import model.trail.*;
 
 /**
@@ -10,11 +11,38 @@ import model.trail.*;
  */
 public class TrailSearchService {
     private final TrailIndex index;
+    // text index of the last snapshot searched; rebuilt only when the catalog changes, not per keystroke
+    private volatile TextIndexed text = new TextIndexed(TrailIndexSnapshot.EMPTY, TrailTextIndex.EMPTY);
+
+    private static final class TextIndexed {
+        final TrailIndexSnapshot snapshot;
+        final TrailTextIndex index;
+
+        TextIndexed(TrailIndexSnapshot snapshot, TrailTextIndex index) {
+            this.snapshot = snapshot;
+            this.index = index;
+        }
+    }
 
     public TrailSearchService(TrailIndex index) {
         this.index = index;
     }
 
+    /** A search-as-you-type session over this service's index */
+    public TrailSearchSession newSession() {
+        return new TrailSearchSession(index, this);
+    }
+
+    /** BM25 text index over snap's trails (cached per snapshot) */
+    public TrailTextIndex textIndex(TrailIndexSnapshot snap) {
+        TextIndexed cur = text;
+        if (cur.snapshot != snap) {
+            cur = new TextIndexed(snap, TrailTextIndex.build(snap));
+            text = cur;
+        }
+        return cur.index;
+    }
+
 
     /** 🔍 Fuzzy search + multi-criteria using TrailIndex acceleration */
     public List<Trail> fuzzy(String keyword) {
@@ -66,23 +94,23 @@ public class TrailSearchService {
             textTokens.add(tk);
         }
 
-        // ---------- Step1: fuzzy text match ----------
-        List<Trail> textMatched;
+        TrailIndexSnapshot snap = index.snapshot();
 
-        if (!textTokens.isEmpty()) {
-            textMatched = new ArrayList<>();
-            for (Trail t : index.getAll()) {
-                String text = (t.getName() + " " + t.getPark() + " " +
-                               t.getTopic() + " " + t.getState()).toLowerCase();
+        // structured conditions only: answer with a column scan
+        if (textTokens.isEmpty()) {
+            return snap.select(new TrailColumnStore.Query()
+                    .difficulty(diff)
+                    .topic(topic)
+                    .flag(TrailColumnStore.PET, pet)
+                    .flag(TrailColumnStore.CAMPING, camp)
+                    .maxLength(maxLen)).toList();
+        }
 
-                boolean ok = true;
-                for (String tk : textTokens) {
-                    if (!text.contains(tk)) { ok = false; break; }
-                }
-                if (ok) textMatched.add(t);
-            }
-        } else {
-            textMatched = index.getAll();
+        // ---------- Step1: ranked text match (posting-list merge, best first) ----------
+        TrailColumnStore columns = snap.columns();
+        List<Trail> textMatched = new ArrayList<>();
+        for (int row : textIndex(snap).search(textTokens, null)) {
+            textMatched.add(columns.trail(row));
         }
 
         // ---------- Step2: use structured conditions ----------
@@ -136,9 +164,10 @@ public class TrailSearchService {
     }
 
     public List<Trail> recommendWildlife() {
-        // leverage index for topic filtering
-        List<Trail> forest = index.getByTopic("forest");
-        List<Trail> river = index.getByTopic("river");
+        // leverage index for topic filtering (one snapshot for both lookups)
+        TrailIndexSnapshot snap = index.snapshot();
+        List<Trail> forest = snap.getByTopic("forest");
+        List<Trail> river = snap.getByTopic("river");
 
         List<Trail> out = new ArrayList<>();
         out.addAll(forest);
@@ -0,0 +1,122 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import model.search.TrailTextIndex;
+import model.trail.*;
+
+/**
+ * Search-as-you-type state for one search box (see TrailSearchService.newSession()).
+ *
+ * Remembers the last query (text tokens + TrailQuery filters) and two row
+ * sets it produced: the result, and the "stem", which is the rows matching the
+ * filters and every text token but the last. While the catalog snapshot
+ * is unchanged and the filters only tighten, a new query is answered from
+ * those rows instead of the whole catalog:
+ *  - the last token edited ("lak" -> "lake", or back): the stem is unchanged,
+ *    so only the stem's rows are searched
+ *  - tokens appended ("lake" -> "lake w"): every new match is among the
+ *    previous result, so that result bounds the new stem
+ *  - a tighter slider / extra filter: column checks on the cached rows
+ * Anything else (a token removed or changed in the middle, a looser filter,
+ * a write to the catalog) runs the full query. Only the candidate rows are
+ * reused: every token is still expanded (prefix and typo walks included) and
+ * scored on each search, just over those rows instead of the whole catalog.
+ * The stem rows are exact (prefix and typo matching are not monotone in the
+ * last token, which is why it is never part of them), so refining is never
+ * an approximation.
+ *
+ * A session is meant for one UI thread; its methods are synchronized so a
+ * stray background caller cannot corrupt the cached state.
+ */
+public final class TrailSearchSession {
+
+    private final TrailIndex index;
+    private final TrailSearchService service;
+
+    // last query and what it produced (snapshot == null: nothing cached yet)
+    private TrailIndexSnapshot snapshot;
+    private TrailQuery filters;
+    private List<String> tokens = List.of();
+    private TrailBitmap stem;           // rows matching filters + tokens[0 .. n-1)
+    private int[] result;               // rows matching everything, in result order
+
+    TrailSearchSession(TrailIndex index, TrailSearchService service) {
+        this.index = index;
+        this.service = service;
+    }
+
+    /**
+     * Trails matching every text token and the filters: best text match
+     * first when there is text, ordinal order otherwise.
+     */
+    public synchronized List<Trail> search(List<String> textTokens, TrailQuery query) {
+        TrailIndexSnapshot snap = index.snapshot();
+        TrailQuery q = query.copy();
+        List<String> toks = TrailTextIndex.tokens(String.join(" ", textTokens));
+        List<String> stemToks = toks.isEmpty() ? toks : toks.subList(0, toks.size() - 1);
+
+        boolean tighter = snap == snapshot && q.narrows(filters);
+        boolean sameFilters = tighter && filters.narrows(q);
+
+        if (sameFilters && toks.equals(tokens)) return trails(snap, result);
+
+        TrailBitmap base;          // rows matching q and the first `known` tokens of stemToks
+        int known;
+        if (tighter && stemToks.equals(stemOf(tokens))) {
+            base = sameFilters ? stem : snap.retain(stem, q);
+            known = stemToks.size();
+        } else if (tighter && isPrefix(tokens, stemToks)) {
+            base = snap.retain(rowsOf(result), q);
+            known = tokens.size();
+        } else {
+            base = snap.plan(q).execute();
+            known = 0;
+        }
+
+        TrailTextIndex text = service.textIndex(snap);
+        TrailBitmap newStem = (known == stemToks.size()) ? base : rowsOf(text.search(stemToks, base));
+        int[] rows = toks.isEmpty() ? newStem.toArray() : text.search(toks, newStem);
+
+        snapshot = snap;
+        filters = q;
+        tokens = List.copyOf(toks);
+        stem = newStem;
+        result = rows;
+        return trails(snap, rows);
+    }
+
+    /** Forget the cached query; the next search runs in full */
+    public synchronized void reset() {
+        snapshot = null;
+        filters = null;
+        tokens = List.of();
+        stem = null;
+        result = null;
+    }
+
+    private static List<String> stemOf(List<String> toks) {
+        return toks.isEmpty() ? toks : toks.subList(0, toks.size() - 1);
+    }
+
+    private static boolean isPrefix(List<String> prefix, List<String> of) {
+        return prefix.size() <= of.size() && of.subList(0, prefix.size()).equals(prefix);
+    }
+
+    private static TrailBitmap rowsOf(int[] rows) {
+        int[] sorted = rows.clone();
+        Arrays.sort(sorted);
+        TrailBitmap.Builder b = new TrailBitmap.Builder();
+        for (int r : sorted) b.add(r);
+        return b.build();
+    }
+
+    private static List<Trail> trails(TrailIndexSnapshot snap, int[] rows) {
+        TrailColumnStore columns = snap.columns();
+        List<Trail> out = new ArrayList<>(rows.length);
+        for (int r : rows) out.add(columns.trail(r));
+        return out;
+    }
+}